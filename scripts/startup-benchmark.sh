@@ -0,0 +1,83 @@
+#!/usr/bin/env bash
+# Compares cold-start time of the application in three modes:
+#   jvm     plain executable jar
+#   aot     same jar with the AOT-generated context (-Dspring.aot.enabled=true)
+#   native  GraalVM native image (needs a GraalVM JDK with native-image on the PATH)
+#
+# Each mode is started RUNS times against a running Redis (REDIS_HOST/REDIS_PORT). A run ends
+# when /actuator/health answers; both that wall-clock time and Spring's own "Started ... in"
+# figure are reported.
+#
+# Usage: scripts/startup-benchmark.sh [jvm] [aot] [native]   (default: all three)
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+REDIS_HOST=${REDIS_HOST:-localhost}
+REDIS_PORT=${REDIS_PORT:-6379}
+MODES=("$@")
+[ ${#MODES[@]} -eq 0 ] && MODES=(jvm aot native)
+
+APP_ARGS=(--server.port="$PORT" --spring.data.redis.host="$REDIS_HOST" --spring.data.redis.port="$REDIS_PORT")
+
+build() {
+    case "$1" in
+        jvm|aot) [ -n "${JAR:-}" ] || { ./gradlew -q bootJar; JAR=$(ls build/libs/*.jar | grep -v plain | head -1); } ;;
+        native)  ./gradlew -q nativeCompile ;;
+    esac
+}
+
+command_for() {
+    case "$1" in
+        jvm)    echo java -jar "$JAR" ;;
+        aot)    echo java -Dspring.aot.enabled=true -jar "$JAR" ;;
+        native) echo build/native/nativeCompile/idempotency-library ;;
+    esac
+}
+
+now_ms() {
+    date +%s%3N
+}
+
+run_once() {
+    local log
+    log=$(mktemp)
+    local started_at
+    started_at=$(now_ms)
+    # shellcheck disable=SC2046
+    $(command_for "$1") "${APP_ARGS[@]}" >"$log" 2>&1 &
+    local pid=$!
+    until curl -sf "http://localhost:$PORT/actuator/health" >/dev/null; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "$1: application exited during startup, see $log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    local ready_ms=$(( $(now_ms) - started_at ))
+    local spring_s
+    spring_s=$(grep -oE 'Started [A-Za-z]+ in [0-9.]+ seconds' "$log" | grep -oE '[0-9.]+ seconds' | cut -d' ' -f1)
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    rm -f "$log"
+    echo "$ready_ms ${spring_s:-?}"
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+printf '%-8s %6s %18s %22s\n' mode runs 'median ready (ms)' 'median "Started in" (s)'
+for mode in "${MODES[@]}"; do
+    build "$mode"
+    results=()
+    for _ in $(seq "$RUNS"); do
+        results+=("$(run_once "$mode")")
+    done
+    ready=$(printf '%s\n' "${results[@]}" | cut -d' ' -f1 | median)
+    started=$(printf '%s\n' "${results[@]}" | cut -d' ' -f2 | grep -v '?' || true)
+    [ -n "$started" ] && started=$(echo "$started" | median)
+    printf '%-8s %6d %18s %22s\n' "$mode" "$RUNS" "$ready" "${started:-n/a}"
+done
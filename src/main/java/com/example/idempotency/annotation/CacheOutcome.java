@@ -0,0 +1,27 @@
+package com.example.idempotency.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A deterministic failure worth caching and replaying, declared in
+ * {@link Idempotent#cacheOutcomes()}. Matches non-2xx {@code ResponseEntity} statuses and/or
+ * thrown exception types (including subclasses). Cached exceptions are replayed by throwing a
+ * new instance built from the {@code (String message)} or no-arg constructor. Only the type and
+ * message are kept: the cause, stack trace and any custom fields (error codes, status) are
+ * lost. A thrown exception with neither constructor, such as Spring's
+ * {@code ResponseStatusException}, is not cached and its handler runs again on retry.
+ *
+ * <p>5xx statuses are never cached, even if listed: they are treated as transient.
+ */
+@Target({})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheOutcome {
+    int[] status() default {};
+    Class<? extends Throwable>[] exception() default {};
+    /** Negative means use the enclosing {@link Idempotent#ttl()} and {@link Idempotent#timeUnit()}. */
+    long ttl() default -1;
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+}
@@ -1,5 +1,8 @@
 package com.example.idempotency.annotation;
 
+import com.example.idempotency.aot.IdempotentReflectiveProcessor;
+import org.springframework.aot.hint.annotation.Reflective;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -8,11 +11,19 @@ import java.util.concurrent.TimeUnit;
 
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
+@Reflective(IdempotentReflectiveProcessor.class)
 public @interface Idempotent {
     String headerName() default "Idempotency-Key";
+    /**
+     * SpEL expression over method arguments, e.g. {@code "#order.tenantId + ':' + #order.id"}.
+     * Takes precedence over {@link #headerName()} and needs no HTTP request context.
+     */
+    String key() default "";
     String keyPrefix() default "";
     long ttl() default 1;
     TimeUnit timeUnit() default TimeUnit.HOURS;
     boolean mandatory() default true;
     boolean includeBody() default false;
+    /** Non-2xx results to cache as well; by default only 2xx responses are cached. */
+    CacheOutcome[] cacheOutcomes() default {};
 }
@@ -0,0 +1,44 @@
+package com.example.idempotency.aot;
+
+import com.example.idempotency.annotation.CacheOutcome;
+import com.example.idempotency.annotation.Idempotent;
+import com.example.idempotency.aspect.IdempotencyAspect;
+import com.example.idempotency.exception.IdempotencyBodyMismatchException;
+import com.example.idempotency.exception.IdempotencyConflictException;
+import com.example.idempotency.exception.IdempotencyExceptionHandler;
+import com.example.idempotency.exception.IdempotencyKeyMissingException;
+import com.example.idempotency.exception.IdempotencyShuttingDownException;
+import com.example.idempotency.model.CachedResponse;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.support.BindingReflectionHintsRegistrar;
+
+/**
+ * Reflection the library needs at runtime that AOT processing cannot infer on its own, so
+ * AOT-processed and native-image builds behave like the JVM.
+ */
+public class IdempotencyRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerRuntimeHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Jackson reads and writes cached records and error bodies
+        bindingHints.registerReflectionHints(hints.reflection(),
+                CachedResponse.class, IdempotencyExceptionHandler.ErrorBody.class);
+
+        // AspectJ resolves the advice method and its annotation binding reflectively
+        hints.reflection().registerType(IdempotencyAspect.class, MemberCategory.INVOKE_DECLARED_METHODS);
+        hints.reflection().registerTypes(TypeReference.listOf(Idempotent.class, CacheOutcome.class),
+                hint -> hint.withMembers(MemberCategory.INVOKE_PUBLIC_METHODS));
+
+        hints.reflection().registerTypes(TypeReference.listOf(
+                        IdempotencyKeyMissingException.class,
+                        IdempotencyBodyMismatchException.class,
+                        IdempotencyConflictException.class,
+                        IdempotencyShuttingDownException.class),
+                hint -> hint.withMembers(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS));
+    }
+}
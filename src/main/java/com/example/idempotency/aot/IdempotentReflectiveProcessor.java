@@ -0,0 +1,44 @@
+package com.example.idempotency.aot;
+
+import com.example.idempotency.annotation.CacheOutcome;
+import com.example.idempotency.annotation.Idempotent;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.ReflectionHints;
+import org.springframework.aot.hint.annotation.SimpleReflectiveProcessor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.ResponseEntity;
+
+import java.lang.reflect.Method;
+
+/**
+ * Registers what the aspect reaches reflectively for each {@link Idempotent} method: the
+ * constructors of exception types listed in {@link Idempotent#cacheOutcomes()}, which are
+ * instantiated when a cached failure is replayed; the parameter types a SpEL
+ * {@link Idempotent#key()} navigates; and the return type Jackson rebuilds when a plain
+ * (non-{@link ResponseEntity}) result is replayed.
+ */
+public class IdempotentReflectiveProcessor extends SimpleReflectiveProcessor {
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    protected void registerMethodHint(ReflectionHints hints, Method method) {
+        super.registerMethodHint(hints, method);
+        Idempotent idempotent = AnnotatedElementUtils.findMergedAnnotation(method, Idempotent.class);
+        if (idempotent == null) {
+            return;
+        }
+        if (!idempotent.key().isEmpty()) {
+            bindingRegistrar.registerReflectionHints(hints, method.getGenericParameterTypes());
+        }
+        if (!ResponseEntity.class.isAssignableFrom(method.getReturnType())) {
+            bindingRegistrar.registerReflectionHints(hints, method.getGenericReturnType());
+        }
+        for (CacheOutcome outcome : idempotent.cacheOutcomes()) {
+            for (Class<? extends Throwable> type : outcome.exception()) {
+                hints.registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            }
+        }
+    }
+}
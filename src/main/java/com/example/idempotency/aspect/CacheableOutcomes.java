@@ -0,0 +1,103 @@
+package com.example.idempotency.aspect;
+
+import com.example.idempotency.annotation.CacheOutcome;
+import com.example.idempotency.annotation.Idempotent;
+import com.example.idempotency.model.CachedResponse;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+
+/**
+ * Matches results against {@link Idempotent#cacheOutcomes()} and rebuilds cached exceptions.
+ * Only types listed on the annotation (or their subclasses) are ever instantiated.
+ */
+final class CacheableOutcomes {
+
+    private static final CacheOutcome[] NONE = {};
+
+    private CacheableOutcomes() {
+    }
+
+    /** The outcome listing this non-2xx status, or {@code null}; 5xx never matches. */
+    static CacheOutcome forStatus(Idempotent idempotent, int status) {
+        if (status >= 500) {
+            return null;
+        }
+        for (CacheOutcome outcome : outcomes(idempotent)) {
+            for (int listed : outcome.status()) {
+                if (listed == status) {
+                    return outcome;
+                }
+            }
+        }
+        return null;
+    }
+
+    static CacheOutcome forException(Idempotent idempotent, Throwable failure) {
+        for (CacheOutcome outcome : outcomes(idempotent)) {
+            for (Class<? extends Throwable> type : outcome.exception()) {
+                if (type.isInstance(failure)) {
+                    return outcome;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Whether a cached failure of this type could be rebuilt on replay. */
+    static boolean canRecreate(Class<? extends Throwable> type) {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            return false;
+        }
+        try {
+            type.getConstructor(String.class);
+            return true;
+        } catch (NoSuchMethodException e) {
+            try {
+                type.getConstructor();
+                return true;
+            } catch (NoSuchMethodException noDefault) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * A new instance of the cached exception, or {@code null} if its type is no longer listed
+     * or has neither a {@code (String)} nor a no-arg constructor.
+     */
+    static Throwable recreate(Idempotent idempotent, CachedResponse cached) {
+        for (CacheOutcome outcome : outcomes(idempotent)) {
+            for (Class<? extends Throwable> type : outcome.exception()) {
+                try {
+                    Class<?> actual = ClassUtils.forName(cached.getExceptionType(), type.getClassLoader());
+                    if (type.isAssignableFrom(actual)) {
+                        return instantiate(actual.asSubclass(Throwable.class), cached.getBody());
+                    }
+                } catch (ClassNotFoundException | LinkageError e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Throwable instantiate(Class<? extends Throwable> type, String message) {
+        try {
+            try {
+                Constructor<? extends Throwable> withMessage = type.getConstructor(String.class);
+                return withMessage.newInstance(message);
+            } catch (NoSuchMethodException e) {
+                return type.getConstructor().newInstance();
+            }
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static CacheOutcome[] outcomes(Idempotent idempotent) {
+        CacheOutcome[] outcomes = idempotent.cacheOutcomes();
+        return outcomes != null ? outcomes : NONE;
+    }
+}
@@ -1,11 +1,20 @@
 package com.example.idempotency.aspect;
 
+import com.example.idempotency.annotation.CacheOutcome;
 import com.example.idempotency.annotation.Idempotent;
+import com.example.idempotency.audit.IdempotencyDecision;
+import com.example.idempotency.audit.IdempotencyDecisionRecorder;
+import com.example.idempotency.config.IdempotencyProperties;
 import com.example.idempotency.exception.IdempotencyBodyMismatchException;
 import com.example.idempotency.exception.IdempotencyConflictException;
 import com.example.idempotency.exception.IdempotencyKeyMissingException;
+import com.example.idempotency.exception.IdempotencyShuttingDownException;
 import com.example.idempotency.model.CachedResponse;
+import com.example.idempotency.monitor.HandlerLatencyTracker;
+import com.example.idempotency.monitor.HeldLockRegistry;
+import com.example.idempotency.monitor.HotKeySketch;
 import com.example.idempotency.store.IdempotencyStore;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -14,6 +23,8 @@ import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -22,11 +33,23 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HexFormat;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @Aspect
 @Component
@@ -34,29 +57,45 @@ public class IdempotencyAspect {
 
     private static final Logger log = LoggerFactory.getLogger(IdempotencyAspect.class);
     private static final String KEY_PREFIX = "idempotency";
+    private static final int COMPACT_KEY_BYTES = 16;
 
     private final IdempotencyStore store;
     private final ObjectMapper objectMapper;
+    private final IdempotencyProperties properties;
+    private final HotKeySketch hotKeys;
+    private final HeldLockRegistry heldLocks;
+    private final HandlerLatencyTracker latencies;
+    private final IdempotencyDecisionRecorder decisions;
+    private final IdempotencyKeyExpressionEvaluator keyExpressionEvaluator = new IdempotencyKeyExpressionEvaluator();
+    private final Set<Class<?>> unreplayableFailures = ConcurrentHashMap.newKeySet();
 
-    public IdempotencyAspect(IdempotencyStore store, ObjectMapper objectMapper) {
+    public IdempotencyAspect(IdempotencyStore store, ObjectMapper objectMapper, IdempotencyProperties properties,
+                             HotKeySketch hotKeys, HeldLockRegistry heldLocks, HandlerLatencyTracker latencies,
+                             IdempotencyDecisionRecorder decisions) {
         this.store = store;
         this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.hotKeys = hotKeys;
+        this.heldLocks = heldLocks;
+        this.latencies = latencies;
+        this.decisions = decisions;
     }
 
     @Around("@annotation(idempotent)")
     public Object handleIdempotency(ProceedingJoinPoint joinPoint, Idempotent idempotent) throws Throwable {
-        HttpServletRequest request = getCurrentRequest();
-
-        String headerValue = request.getHeader(idempotent.headerName());
+        String keyValue = resolveKeyValue(joinPoint, idempotent);
 
-        if (headerValue == null || headerValue.isBlank()) {
+        if (keyValue == null || keyValue.isBlank()) {
             if (idempotent.mandatory()) {
-                throw new IdempotencyKeyMissingException(idempotent.headerName());
+                throw hasKeyExpression(idempotent)
+                        ? IdempotencyKeyMissingException.forExpression(idempotent.key())
+                        : new IdempotencyKeyMissingException(idempotent.headerName());
             }
             return joinPoint.proceed();
         }
 
-        String redisKey = buildKey(idempotent.keyPrefix(), headerValue);
+        String redisKey = buildKey(idempotent.keyPrefix(), keyValue);
+        hotKeys.record(idempotent.keyPrefix(), redisKey);
         String bodyHash = idempotent.includeBody() ? hashRequestBody(joinPoint) : null;
 
         // Step 1: Check if response is already cached (completed previous request)
@@ -65,7 +104,7 @@ public class IdempotencyAspect {
             cached = store.get(redisKey);
         } catch (Exception e) {
             log.warn("Redis unavailable for idempotency check, proceeding without: {}", e.getMessage());
-            return joinPoint.proceed();
+            return proceedFailOpen(joinPoint, idempotent, keyValue, bodyHash);
         }
 
         if (cached.isPresent()) {
@@ -74,14 +113,36 @@ public class IdempotencyAspect {
             // Body mismatch check
             if (idempotent.includeBody() && cachedResponse.getBodyHash() != null && bodyHash != null) {
                 if (!cachedResponse.getBodyHash().equals(bodyHash)) {
-                    throw new IdempotencyBodyMismatchException(headerValue);
+                    decisions.record(IdempotencyDecision.BODY_MISMATCH, idempotent.keyPrefix(), keyValue, 0, bodyHash);
+                    throw new IdempotencyBodyMismatchException(keyValue);
                 }
             }
 
-            return ResponseEntity
-                    .status(cachedResponse.getStatusCode())
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(cachedResponse.getBody());
+            if (cachedResponse.getExceptionType() == null) {
+                try {
+                    Object replayed = replay(joinPoint, cachedResponse);
+                    decisions.record(IdempotencyDecision.HIT, idempotent.keyPrefix(), keyValue, 0, bodyHash);
+                    return replayed;
+                } catch (IOException e) {
+                    // e.g. the return type changed since the record was written: process again
+                    log.warn("Cannot replay cached idempotency response, treating as miss: {}", e.getMessage());
+                    evict(redisKey);
+                }
+            } else {
+                Throwable failure = CacheableOutcomes.recreate(idempotent, cachedResponse);
+                if (failure != null) {
+                    decisions.record(IdempotencyDecision.HIT, idempotent.keyPrefix(), keyValue, 0, bodyHash);
+                    throw failure;
+                }
+                // No longer listed or constructible: drop the record and process the key under a lock
+                log.warn("Cannot replay cached {}, treating as miss", cachedResponse.getExceptionType());
+                evict(redisKey);
+            }
+        }
+
+        // Draining for shutdown: replays above are still served, new work goes to another node
+        if (!heldLocks.isAccepting()) {
+            throw new IdempotencyShuttingDownException(keyValue);
         }
 
         // Step 2: Try to acquire lock (atomic SET NX) before proceeding
@@ -90,48 +151,223 @@ public class IdempotencyAspect {
             lockAcquired = store.tryLock(redisKey, idempotent.ttl(), idempotent.timeUnit());
         } catch (Exception e) {
             log.warn("Redis unavailable for idempotency lock, proceeding without: {}", e.getMessage());
-            return joinPoint.proceed();
+            return proceedFailOpen(joinPoint, idempotent, keyValue, bodyHash);
         }
 
         if (!lockAcquired) {
             // Another request with the same key is currently being processed
-            throw new IdempotencyConflictException(headerValue);
+            decisions.record(IdempotencyDecision.CONFLICT, idempotent.keyPrefix(), keyValue, 0, bodyHash);
+            throw new IdempotencyConflictException(keyValue, retryAfterSeconds(joinPoint, redisKey, idempotent));
         }
+        heldLocks.register(redisKey);
 
         // Step 3: Lock acquired — proceed with controller method
         // Step 4: Always release lock in finally (success, failure, or exception)
+        long startedAt = System.nanoTime();
         try {
-            Object result = joinPoint.proceed();
+            Object result;
+            try {
+                result = joinPoint.proceed();
+            } catch (Throwable failure) {
+                CacheOutcome outcome = CacheableOutcomes.forException(idempotent, failure);
+                if (outcome != null) {
+                    cacheFailure(redisKey, failure, bodyHash, idempotent, outcome);
+                }
+                throw failure;
+            }
+            // Only completed runs feed Retry-After; a fast rejection says nothing about how long real work takes
+            latencies.record(endpointOf(joinPoint), System.nanoTime() - startedAt);
 
-            // Cache only 2xx ResponseEntity results
+            // Cache 2xx ResponseEntity results and listed outcomes; plain return values of
+            // key-expression methods count as 200
             if (result instanceof ResponseEntity<?> responseEntity) {
                 HttpStatusCode status = responseEntity.getStatusCode();
                 if (status.is2xxSuccessful()) {
-                    try {
-                        String body = objectMapper.writeValueAsString(responseEntity.getBody());
-                        CachedResponse toCache = new CachedResponse(status.value(), body, bodyHash);
-                        store.put(redisKey, toCache, idempotent.ttl(), idempotent.timeUnit());
-                    } catch (Exception e) {
-                        log.warn("Failed to cache idempotency response: {}", e.getMessage());
+                    cacheResult(redisKey, status.value(), responseEntity.getBody(), bodyHash,
+                            idempotent.ttl(), idempotent.timeUnit());
+                } else {
+                    CacheOutcome outcome = CacheableOutcomes.forStatus(idempotent, status.value());
+                    if (outcome != null) {
+                        cacheResult(redisKey, status.value(), responseEntity.getBody(), bodyHash,
+                                outcomeTtl(idempotent, outcome), outcomeTimeUnit(idempotent, outcome));
                     }
                 }
+            } else if (cachesPlainValue(joinPoint, idempotent)) {
+                cacheResult(redisKey, HttpStatus.OK.value(), result, bodyHash, idempotent.ttl(), idempotent.timeUnit());
             }
 
             return result;
         } finally {
-            try {
-                store.unlock(redisKey);
-            } catch (Exception e) {
-                log.warn("Failed to release idempotency lock: {}", e.getMessage());
+            long durationNanos = System.nanoTime() - startedAt;
+            decisions.record(IdempotencyDecision.MISS, idempotent.keyPrefix(), keyValue, durationNanos, bodyHash);
+            // False when shutdown already released the lock, which may since belong to another node
+            if (heldLocks.release(redisKey)) {
+                try {
+                    store.unlock(redisKey);
+                } catch (Exception e) {
+                    log.warn("Failed to release idempotency lock: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Object proceedFailOpen(ProceedingJoinPoint joinPoint, Idempotent idempotent, String keyValue,
+                                   String bodyHash) throws Throwable {
+        long startedAt = System.nanoTime();
+        heldLocks.enterUnlocked();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            heldLocks.exitUnlocked();
+            decisions.record(IdempotencyDecision.FAIL_OPEN, idempotent.keyPrefix(), keyValue,
+                    System.nanoTime() - startedAt, bodyHash);
+        }
+    }
+
+    /**
+     * Expected seconds until the in-flight request finishes: the method's average handler
+     * time minus how long the lock has been held, capped at the lock TTL. 0 when unknown.
+     */
+    private long retryAfterSeconds(ProceedingJoinPoint joinPoint, String redisKey, Idempotent idempotent) {
+        OptionalLong expectedMillis = latencies.expectedMillis(endpointOf(joinPoint));
+        if (expectedMillis.isEmpty()) {
+            return 0;
+        }
+        long elapsedMillis = 0;
+        try {
+            OptionalLong acquiredAt = store.lockAcquiredAt(redisKey);
+            if (acquiredAt.isPresent()) {
+                elapsedMillis = Math.max(0, System.currentTimeMillis() - acquiredAt.getAsLong());
+            }
+        } catch (Exception e) {
+            log.debug("Could not read idempotency lock age: {}", e.getMessage());
+        }
+        long remainingMillis = Math.max(0, expectedMillis.getAsLong() - elapsedMillis);
+        long seconds = Math.max(1, (remainingMillis + 999) / 1000);
+        return Math.min(seconds, Math.max(1, idempotent.timeUnit().toSeconds(idempotent.ttl())));
+    }
+
+    private static Method endpointOf(ProceedingJoinPoint joinPoint) {
+        return joinPoint.getSignature() instanceof MethodSignature signature ? signature.getMethod() : null;
+    }
+
+    private void cacheResult(String redisKey, int statusCode, Object body, String bodyHash,
+                             long ttl, TimeUnit timeUnit) {
+        try {
+            String json = objectMapper.writeValueAsString(body);
+            CachedResponse toCache = new CachedResponse(statusCode, json, bodyHash);
+            store.put(redisKey, toCache, ttl, timeUnit);
+        } catch (Exception e) {
+            log.warn("Failed to cache idempotency response: {}", e.getMessage());
+        }
+    }
+
+    private void cacheFailure(String redisKey, Throwable failure, String bodyHash, Idempotent idempotent,
+                              CacheOutcome outcome) {
+        if (!CacheableOutcomes.canRecreate(failure.getClass())) {
+            if (unreplayableFailures.add(failure.getClass())) {
+                log.warn("Not caching {}: it needs a public (String) or no-arg constructor to be replayed",
+                        failure.getClass().getName());
             }
+            return;
+        }
+        try {
+            store.put(redisKey, CachedResponse.ofException(failure, bodyHash),
+                    outcomeTtl(idempotent, outcome), outcomeTimeUnit(idempotent, outcome));
+        } catch (Exception e) {
+            log.warn("Failed to cache idempotency failure: {}", e.getMessage());
+        }
+    }
+
+    private static long outcomeTtl(Idempotent idempotent, CacheOutcome outcome) {
+        return outcome.ttl() < 0 ? idempotent.ttl() : outcome.ttl();
+    }
+
+    private static TimeUnit outcomeTimeUnit(Idempotent idempotent, CacheOutcome outcome) {
+        return outcome.ttl() < 0 ? idempotent.timeUnit() : outcome.timeUnit();
+    }
+
+    private Object replay(ProceedingJoinPoint joinPoint, CachedResponse cachedResponse) throws Exception {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        if (ResponseEntity.class.isAssignableFrom(method.getReturnType())) {
+            return ResponseEntity
+                    .status(cachedResponse.getStatusCode())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(cachedResponse.getBody());
+        }
+        if (method.getReturnType() == void.class || cachedResponse.getBody() == null) {
+            return null;
+        }
+        JavaType returnType = objectMapper.getTypeFactory().constructType(method.getGenericReturnType());
+        return objectMapper.readValue(cachedResponse.getBody(), returnType);
+    }
+
+    /**
+     * Plain return values are cached only for key-expression methods (consumers, service calls);
+     * header-keyed controllers without {@code ResponseEntity} re-run on retry as they always did.
+     * Return types that cannot be read back from JSON (async, abstract, {@code Object}) are skipped.
+     */
+    private boolean cachesPlainValue(ProceedingJoinPoint joinPoint, Idempotent idempotent) {
+        if (!hasKeyExpression(idempotent)) {
+            return false;
+        }
+        Class<?> returnType = ((MethodSignature) joinPoint.getSignature()).getMethod().getReturnType();
+        if (returnType == void.class || returnType.isPrimitive() || returnType.isArray()) {
+            return true;
+        }
+        return returnType != Object.class
+                && returnType != Optional.class
+                && !ResponseEntity.class.isAssignableFrom(returnType)
+                && !Future.class.isAssignableFrom(returnType)
+                && !CompletionStage.class.isAssignableFrom(returnType)
+                && !returnType.isInterface()
+                && !Modifier.isAbstract(returnType.getModifiers());
+    }
+
+    private void evict(String redisKey) {
+        try {
+            store.evict(redisKey);
+        } catch (Exception e) {
+            log.warn("Failed to evict idempotency record: {}", e.getMessage());
+        }
+    }
+
+    private String resolveKeyValue(ProceedingJoinPoint joinPoint, Idempotent idempotent) {
+        if (hasKeyExpression(idempotent)) {
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            Object target = joinPoint.getTarget();
+            Class<?> targetClass = target != null ? AopUtils.getTargetClass(target) : method.getDeclaringClass();
+            return keyExpressionEvaluator.evaluate(idempotent.key(), method, targetClass, joinPoint.getArgs());
         }
+        HttpServletRequest request = getCurrentRequest();
+        return request != null ? request.getHeader(idempotent.headerName()) : null;
     }
 
-    private String buildKey(String prefix, String headerValue) {
+    private static boolean hasKeyExpression(Idempotent idempotent) {
+        String expression = idempotent.key();
+        return expression != null && !expression.isEmpty();
+    }
+
+    private String buildKey(String prefix, String keyValue) {
+        String keyPart = properties.isCompactKeys() ? compactKey(keyValue) : keyValue;
         if (prefix == null || prefix.isBlank()) {
-            return KEY_PREFIX + ":" + headerValue;
+            return KEY_PREFIX + ":" + keyPart;
+        }
+        return KEY_PREFIX + ":" + prefix + ":" + keyPart;
+    }
+
+    /**
+     * Truncated SHA-256 of the client key, base64url-encoded: always 22 characters.
+     * The prefix stays readable so keys can still be scanned per endpoint.
+     */
+    private String compactKey(String keyValue) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(keyValue.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, COMPACT_KEY_BYTES));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
-        return KEY_PREFIX + ":" + prefix + ":" + headerValue;
     }
 
     private String hashRequestBody(ProceedingJoinPoint joinPoint) {
@@ -165,11 +401,11 @@ public class IdempotencyAspect {
         return null;
     }
 
+    // Null outside a servlet request (message consumers, scheduled jobs, service calls)
     private HttpServletRequest getCurrentRequest() {
-        ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-        if (attrs == null) {
-            throw new IllegalStateException("No current HTTP request context");
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs) {
+            return attrs.getRequest();
         }
-        return attrs.getRequest();
+        return null;
     }
 }
@@ -0,0 +1,41 @@
+package com.example.idempotency.aspect;
+
+import org.springframework.context.expression.AnnotatedElementKey;
+import org.springframework.context.expression.CachedExpressionEvaluator;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.NativeDetector;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates {@code @Idempotent(key = ...)} against method arguments. Each expression is
+ * parsed once per method and cached; SpEL compiles it to bytecode once it is warm
+ * ({@link SpelCompilerMode#MIXED}), falling back to interpretation if compilation fails.
+ * A native image cannot define classes at runtime, so there expressions are always interpreted.
+ *
+ * <p>Arguments are exposed as {@code #name}, {@code #p0} and {@code #a0}.
+ */
+class IdempotencyKeyExpressionEvaluator extends CachedExpressionEvaluator {
+
+    private final Map<ExpressionKey, Expression> keyCache = new ConcurrentHashMap<>(64);
+
+    IdempotencyKeyExpressionEvaluator() {
+        super(new SpelExpressionParser(new SpelParserConfiguration(
+                NativeDetector.inNativeImage() ? SpelCompilerMode.OFF : SpelCompilerMode.MIXED,
+                IdempotencyKeyExpressionEvaluator.class.getClassLoader())));
+    }
+
+    String evaluate(String expression, Method method, Class<?> targetClass, Object[] args) {
+        AnnotatedElementKey elementKey = new AnnotatedElementKey(method, targetClass);
+        EvaluationContext context = new MethodBasedEvaluationContext(null, method, args, getParameterNameDiscoverer());
+        Object value = getExpression(keyCache, elementKey, expression).getValue(context);
+        return value != null ? value.toString() : null;
+    }
+}
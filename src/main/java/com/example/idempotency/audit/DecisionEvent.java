@@ -0,0 +1,32 @@
+package com.example.idempotency.audit;
+
+/**
+ * One slot of the decision ring buffer. Slots are preallocated and reused, so a sink must
+ * copy anything it wants to keep before {@link DecisionEventSink#write} returns.
+ */
+public final class DecisionEvent {
+
+    private long timestampMillis;
+    private IdempotencyDecision decision;
+    private String prefix;
+    private String key;
+    private long durationNanos;
+    private String bodyHash;
+
+    void set(long timestampMillis, IdempotencyDecision decision, String prefix, String key,
+             long durationNanos, String bodyHash) {
+        this.timestampMillis = timestampMillis;
+        this.decision = decision;
+        this.prefix = prefix;
+        this.key = key;
+        this.durationNanos = durationNanos;
+        this.bodyHash = bodyHash;
+    }
+
+    public long getTimestampMillis() { return timestampMillis; }
+    public IdempotencyDecision getDecision() { return decision; }
+    public String getPrefix() { return prefix; }
+    public String getKey() { return key; }
+    public long getDurationNanos() { return durationNanos; }
+    public String getBodyHash() { return bodyHash; }
+}
@@ -0,0 +1,19 @@
+package com.example.idempotency.audit;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for batches of idempotency decisions, called only from the decision log's
+ * single consumer thread. Define a bean of this type to replace the default rolling
+ * NDJSON file.
+ */
+public interface DecisionEventSink extends AutoCloseable {
+
+    /** Events are reused once this returns; copy anything that must outlive the call. */
+    void write(List<DecisionEvent> batch) throws IOException;
+
+    /** Called after the final batch; a sink bean may also be closed by the container, so keep this idempotent. */
+    @Override
+    default void close() throws IOException {}
+}
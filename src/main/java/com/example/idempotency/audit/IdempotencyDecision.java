@@ -0,0 +1,14 @@
+package com.example.idempotency.audit;
+
+public enum IdempotencyDecision {
+    /** Cached response replayed; the handler did not run. */
+    HIT,
+    /** No cached response; the handler ran under the lock. */
+    MISS,
+    /** Another request held the lock; rejected with 409. */
+    CONFLICT,
+    /** Key reused with a different request body; rejected with 422. */
+    BODY_MISMATCH,
+    /** Redis unavailable; the handler ran without idempotency protection. */
+    FAIL_OPEN
+}
@@ -0,0 +1,16 @@
+package com.example.idempotency.audit;
+
+/**
+ * Receives every idempotency decision made by the aspect. Implementations must not block:
+ * they run on the request thread.
+ */
+public interface IdempotencyDecisionRecorder {
+
+    IdempotencyDecisionRecorder NOOP = (decision, prefix, key, durationNanos, bodyHash) -> {};
+
+    /**
+     * @param durationNanos handler duration, or 0 when the handler did not run
+     * @param bodyHash      request body hash, or {@code null} when body checking is off
+     */
+    void record(IdempotencyDecision decision, String prefix, String key, long durationNanos, String bodyHash);
+}
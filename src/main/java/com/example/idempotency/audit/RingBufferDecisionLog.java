@@ -0,0 +1,162 @@
+package com.example.idempotency.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands idempotency decisions from request threads to a {@link DecisionEventSink} through a
+ * preallocated, lock-free ring buffer drained by one background thread.
+ *
+ * <p>Producers claim a sequence with a CAS, fill the slot and publish it by storing
+ * {@code sequence + 1} in the slot's marker. The consumer reads published slots in order,
+ * writes them in batches and only then frees them. When the buffer is full the event is
+ * dropped and counted; request threads never wait on I/O. The consumer logs a warning at
+ * most once a minute while drops keep growing.
+ */
+public class RingBufferDecisionLog implements IdempotencyDecisionRecorder, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RingBufferDecisionLog.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long DROP_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long DROP_WARN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final DecisionEventSink sink;
+    private final int capacity;
+    private final int mask;
+    private final DecisionEvent[] slots;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final LongAdder dropped = new LongAdder();
+    private final List<DecisionEvent> batch;
+    private final int maxBatch;
+    private long reportedDrops;
+    private long nextDropCheck;
+
+    private volatile boolean running;
+    private Thread consumer;
+
+    public RingBufferDecisionLog(DecisionEventSink sink, int capacity, int maxBatch) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.sink = sink;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new DecisionEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new DecisionEvent();
+        }
+        this.published = new AtomicLongArray(capacity);
+        this.maxBatch = maxBatch;
+        this.batch = new ArrayList<>(maxBatch);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        consumer = new Thread(this::drainLoop, "idempotency-decision-log");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void record(IdempotencyDecision decision, String prefix, String key, long durationNanos, String bodyHash) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & mask);
+        slots[index].set(System.currentTimeMillis(), decision, prefix, key, durationNanos, bodyHash);
+        published.lazySet(index, sequence + 1);
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /** Stops the consumer after writing everything already published, then closes the sink. */
+    @Override
+    public synchronized void close() throws Exception {
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+            consumer = null;
+        }
+        sink.close();
+    }
+
+    private void drainLoop() {
+        nextDropCheck = System.nanoTime();
+        while (running) {
+            if (drainBatch() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            warnOnNewDrops();
+        }
+        while (drainBatch() > 0) {
+            // flush what was published before shutdown
+        }
+        nextDropCheck = System.nanoTime();
+        warnOnNewDrops();
+    }
+
+    // Runs on the consumer thread only, so request threads never pay for the log call
+    private void warnOnNewDrops() {
+        long now = System.nanoTime();
+        if (now - nextDropCheck < 0) {
+            return;
+        }
+        long total = dropped.sum();
+        if (total > reportedDrops) {
+            log.warn("Dropped {} idempotency decisions since the last warning because the decision log buffer "
+                    + "was full ({} in total); raise idempotency.decision-log.buffer-size or check the sink",
+                    total - reportedDrops, total);
+            reportedDrops = total;
+            nextDropCheck = now + DROP_WARN_INTERVAL_NANOS;
+        } else {
+            nextDropCheck = now + DROP_CHECK_NANOS;
+        }
+    }
+
+    private int drainBatch() {
+        long next = consumed;
+        batch.clear();
+        while (batch.size() < maxBatch) {
+            int index = (int) (next & mask);
+            if (published.get(index) != next + 1) {
+                break;
+            }
+            batch.add(slots[index]);
+            next++;
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            sink.write(batch);
+        } catch (Exception e) {
+            log.warn("Failed to write {} idempotency decisions: {}", batch.size(), e.getMessage());
+        }
+        int written = batch.size();
+        batch.clear();
+        consumed = next;
+        return written;
+    }
+}
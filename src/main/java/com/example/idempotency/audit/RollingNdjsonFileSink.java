@@ -0,0 +1,124 @@
+package com.example.idempotency.audit;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes decisions as newline-delimited JSON, one object per line:
+ * <pre>
+ * {"ts":1740000000000,"decision":"HIT","prefix":"orders","key":"abc-123","durationNanos":0,"bodyHash":null}
+ * </pre>
+ * A new file is started once the current one reaches {@code maxFileBytes} (counted in
+ * characters, so slightly approximate for non-ASCII keys); only the newest {@code maxFiles}
+ * are kept.
+ */
+public class RollingNdjsonFileSink implements DecisionEventSink {
+
+    private static final String FILE_PREFIX = "idempotency-decisions-";
+    private static final String FILE_SUFFIX = ".ndjson";
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final StringBuilder line = new StringBuilder(256);
+
+    private Writer writer;
+    private long currentBytes;
+    private long fileIndex;
+
+    public RollingNdjsonFileSink(Path directory, long maxFileBytes, int maxFiles) {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public void write(List<DecisionEvent> batch) throws IOException {
+        for (DecisionEvent event : batch) {
+            if (writer == null || currentBytes >= maxFileBytes) {
+                roll();
+            }
+            line.setLength(0);
+            line.append("{\"ts\":").append(event.getTimestampMillis())
+                    .append(",\"decision\":\"").append(event.getDecision().name()).append('"')
+                    .append(",\"prefix\":");
+            appendString(event.getPrefix());
+            line.append(",\"key\":");
+            appendString(event.getKey());
+            line.append(",\"durationNanos\":").append(event.getDurationNanos())
+                    .append(",\"bodyHash\":");
+            appendString(event.getBodyHash());
+            line.append("}\n");
+            writer.append(line);
+            currentBytes += line.length();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void roll() throws IOException {
+        close();
+        Files.createDirectories(directory);
+        // Millis plus a counter keeps names unique and lexically ordered within one process
+        String name = String.format("%s%d-%06d%s", FILE_PREFIX, System.currentTimeMillis(), fileIndex++, FILE_SUFFIX);
+        writer = Files.newBufferedWriter(directory.resolve(name), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        currentBytes = 0;
+        deleteOldFiles();
+    }
+
+    private void deleteOldFiles() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                    .filter(path -> {
+                        String fileName = path.getFileName().toString();
+                        return fileName.startsWith(FILE_PREFIX) && fileName.endsWith(FILE_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
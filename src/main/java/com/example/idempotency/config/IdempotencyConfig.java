@@ -1,16 +1,235 @@
 package com.example.idempotency.config;
 
+import com.example.idempotency.aot.IdempotencyRuntimeHints;
+import com.example.idempotency.audit.DecisionEventSink;
+import com.example.idempotency.audit.IdempotencyDecisionRecorder;
+import com.example.idempotency.audit.RingBufferDecisionLog;
+import com.example.idempotency.audit.RollingNdjsonFileSink;
+import com.example.idempotency.lifecycle.IdempotencyShutdownCoordinator;
+import com.example.idempotency.monitor.HandlerLatencyTracker;
+import com.example.idempotency.monitor.HeldLockRegistry;
+import com.example.idempotency.monitor.HotKeySketch;
+import com.example.idempotency.monitor.IdempotencyEndpoint;
+import com.example.idempotency.monitor.IdempotencyKeySampler;
 import com.example.idempotency.store.IdempotencyStore;
+import com.example.idempotency.store.RedisHashIdempotencyStore;
 import com.example.idempotency.store.RedisIdempotencyStore;
+import com.example.idempotency.store.ShardedIdempotencyStore;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.SslOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.resource.ClientResources;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisConnectionDetails;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.ssl.SslBundle;
+import org.springframework.boot.ssl.SslBundles;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisNode;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.RedisStaticMasterReplicaConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+@ImportRuntimeHints(IdempotencyRuntimeHints.class)
 public class IdempotencyConfig {
 
     @Bean
-    public IdempotencyStore idempotencyStore(StringRedisTemplate redisTemplate) {
-        return new RedisIdempotencyStore(redisTemplate);
+    public IdempotencyRedisConnections idempotencyRedisConnections() {
+        return new IdempotencyRedisConnections();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "idempotency.startup", name = "warm-up-redis", matchIfMissing = true)
+    public IdempotencyRedisWarmUp idempotencyRedisWarmUp(RedisConnectionFactory redisConnectionFactory,
+                                                         IdempotencyRedisConnections connections) {
+        return new IdempotencyRedisWarmUp(redisConnectionFactory, connections);
+    }
+
+    @Bean
+    public IdempotencyStore idempotencyStore(StringRedisTemplate redisTemplate, IdempotencyProperties properties,
+                                             IdempotencyRedisConnections connections,
+                                             RedisConnectionDetails connectionDetails,
+                                             RedisProperties redisProperties,
+                                             ObjectProvider<SslBundles> sslBundles,
+                                             ObjectProvider<ClientResources> clientResources,
+                                             ObjectProvider<LettuceClientConfigurationBuilderCustomizer> customizers) {
+        if (!properties.getSharding().getShards().isEmpty()) {
+            if (properties.getReplicaReads().isEnabled()) {
+                throw new IllegalStateException("idempotency.replica-reads cannot be combined with idempotency.sharding");
+            }
+            return shardedStore(connections, properties);
+        }
+        StringRedisTemplate readTemplate = properties.getReplicaReads().isEnabled()
+                ? replicaReadTemplate(connections, connectionDetails, properties.getReplicaReads().getNodes(),
+                        replicaClientConfiguration(redisProperties, sslBundles, clientResources, customizers))
+                : null;
+        return layoutStore(properties, redisTemplate, readTemplate);
+    }
+
+    @Bean
+    public HotKeySketch hotKeySketch(IdempotencyProperties properties) {
+        IdempotencyProperties.Monitor monitor = properties.getMonitor();
+        return new HotKeySketch(monitor.getSketchWidth(), monitor.getTopKeys());
+    }
+
+    @Bean
+    public IdempotencyDecisionRecorder idempotencyDecisionRecorder(IdempotencyProperties properties,
+                                                                   Optional<DecisionEventSink> customSink) {
+        IdempotencyProperties.DecisionLog decisionLog = properties.getDecisionLog();
+        if (!decisionLog.isEnabled()) {
+            return IdempotencyDecisionRecorder.NOOP;
+        }
+        DecisionEventSink sink = customSink.orElseGet(() -> new RollingNdjsonFileSink(
+                decisionLog.getDirectory(), decisionLog.getMaxFileSize().toBytes(), decisionLog.getMaxFiles()));
+        RingBufferDecisionLog ringBuffer =
+                new RingBufferDecisionLog(sink, decisionLog.getBufferSize(), decisionLog.getBatchSize());
+        ringBuffer.start();
+        return ringBuffer;
+    }
+
+    @Bean
+    public HandlerLatencyTracker handlerLatencyTracker() {
+        return new HandlerLatencyTracker();
+    }
+
+    @Bean
+    public HeldLockRegistry heldLockRegistry() {
+        return new HeldLockRegistry();
+    }
+
+    @Bean
+    public IdempotencyShutdownCoordinator idempotencyShutdownCoordinator(HeldLockRegistry heldLockRegistry,
+                                                                         IdempotencyStore store,
+                                                                         IdempotencyProperties properties) {
+        return new IdempotencyShutdownCoordinator(heldLockRegistry, store, properties.getShutdown().getDrainTimeout());
+    }
+
+    @Bean
+    public IdempotencyEndpoint idempotencyEndpoint(HotKeySketch hotKeySketch, HeldLockRegistry heldLockRegistry,
+                                                   StringRedisTemplate redisTemplate, IdempotencyStore store,
+                                                   IdempotencyDecisionRecorder decisionRecorder,
+                                                   IdempotencyProperties properties) {
+        RingBufferDecisionLog decisionLog =
+                decisionRecorder instanceof RingBufferDecisionLog ringBuffer ? ringBuffer : null;
+        // Sharded records do not live in the spring.data.redis instance, so there is nothing to sample
+        if (store instanceof ShardedIdempotencyStore sharded) {
+            return new IdempotencyEndpoint(hotKeySketch, heldLockRegistry, null, sharded, decisionLog);
+        }
+        IdempotencyKeySampler sampler =
+                new IdempotencyKeySampler(redisTemplate, properties.getMonitor().getMaxSampleKeys());
+        return new IdempotencyEndpoint(hotKeySketch, heldLockRegistry, sampler, null, decisionLog);
+    }
+
+    private static IdempotencyStore shardedStore(IdempotencyRedisConnections connections,
+                                                 IdempotencyProperties properties) {
+        Map<String, IdempotencyStore> shards = new LinkedHashMap<>();
+        for (IdempotencyProperties.Shard shard : properties.getSharding().getShards()) {
+            if (shard.getName() == null || shard.getName().isBlank()) {
+                throw new IllegalStateException("Every idempotency.sharding.shards entry needs a name");
+            }
+            RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(shard.getHost(), shard.getPort());
+            configuration.setUsername(shard.getUsername());
+            configuration.setPassword(RedisPassword.of(shard.getPassword()));
+            StringRedisTemplate template = connections.createTemplate(
+                    configuration, LettuceClientConfiguration.defaultConfiguration());
+            shards.put(shard.getName(), layoutStore(properties, template, null));
+        }
+        IdempotencyProperties.Sharding sharding = properties.getSharding();
+        return new ShardedIdempotencyStore(shards, sharding.getVirtualNodes(), sharding.getPreviousShards(),
+                sharding.getMigrationWindow());
+    }
+
+    private static IdempotencyStore layoutStore(IdempotencyProperties properties, StringRedisTemplate redisTemplate,
+                                                StringRedisTemplate readTemplate) {
+        if (properties.getStorageLayout() == IdempotencyProperties.StorageLayout.HASH) {
+            return new RedisHashIdempotencyStore(redisTemplate, readTemplate);
+        }
+        return new RedisIdempotencyStore(redisTemplate, readTemplate);
+    }
+
+    // Static primary/replica topology: reads prefer replicas and move to the primary when none is reachable
+    private static StringRedisTemplate replicaReadTemplate(IdempotencyRedisConnections connections,
+                                                           RedisConnectionDetails connectionDetails,
+                                                           List<String> replicaNodes,
+                                                           LettuceClientConfiguration clientConfiguration) {
+        if (replicaNodes.isEmpty()) {
+            throw new IllegalStateException("idempotency.replica-reads.nodes must list at least one replica");
+        }
+        RedisConnectionDetails.Standalone primary = connectionDetails.getStandalone();
+        RedisStaticMasterReplicaConfiguration configuration =
+                new RedisStaticMasterReplicaConfiguration(primary.getHost(), primary.getPort());
+        for (String address : replicaNodes) {
+            RedisNode node = RedisNode.fromString(address);
+            configuration.addNode(node.getHost(), node.getPort());
+        }
+        configuration.setDatabase(primary.getDatabase());
+        configuration.setUsername(connectionDetails.getUsername());
+        configuration.setPassword(RedisPassword.of(connectionDetails.getPassword()));
+        return connections.createTemplate(configuration, clientConfiguration);
+    }
+
+    // Mirrors how Boot configures the primary from spring.data.redis, so the replica connections share
+    // its SSL, timeouts, client name, client resources and LettuceClientConfigurationBuilderCustomizers
+    private static LettuceClientConfiguration replicaClientConfiguration(
+            RedisProperties redisProperties, ObjectProvider<SslBundles> sslBundles,
+            ObjectProvider<ClientResources> clientResources,
+            ObjectProvider<LettuceClientConfigurationBuilderCustomizer> customizers) {
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder = LettuceClientConfiguration.builder();
+        clientResources.ifAvailable(builder::clientResources);
+        RedisProperties.Ssl ssl = redisProperties.getSsl();
+        if (ssl.isEnabled()) {
+            builder.useSsl();
+        }
+        if (redisProperties.getTimeout() != null) {
+            builder.commandTimeout(redisProperties.getTimeout());
+        }
+        if (redisProperties.getLettuce().getShutdownTimeout() != null
+                && !redisProperties.getLettuce().getShutdownTimeout().isZero()) {
+            builder.shutdownTimeout(redisProperties.getLettuce().getShutdownTimeout());
+        }
+        if (StringUtils.hasText(redisProperties.getClientName())) {
+            builder.clientName(redisProperties.getClientName());
+        }
+        builder.readFrom(ReadFrom.REPLICA_PREFERRED);
+
+        ClientOptions.Builder options = ClientOptions.builder().timeoutOptions(TimeoutOptions.enabled());
+        if (redisProperties.getConnectTimeout() != null) {
+            options.socketOptions(SocketOptions.builder().connectTimeout(redisProperties.getConnectTimeout()).build());
+        }
+        if (ssl.isEnabled() && ssl.getBundle() != null) {
+            SslBundle bundle = sslBundles.getObject().getBundle(ssl.getBundle());
+            SslOptions.Builder sslOptions = SslOptions.builder()
+                    .keyManager(bundle.getManagers().getKeyManagerFactory())
+                    .trustManager(bundle.getManagers().getTrustManagerFactory());
+            if (bundle.getOptions().getCiphers() != null) {
+                sslOptions.cipherSuites(bundle.getOptions().getCiphers());
+            }
+            if (bundle.getOptions().getEnabledProtocols() != null) {
+                sslOptions.protocols(bundle.getOptions().getEnabledProtocols());
+            }
+            options.sslOptions(sslOptions.build());
+        }
+        builder.clientOptions(options.build());
+
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        return builder.build();
     }
 }
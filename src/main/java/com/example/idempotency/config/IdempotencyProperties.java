@@ -0,0 +1,192 @@
+package com.example.idempotency.config;
+
+import com.example.idempotency.store.ShardedIdempotencyStore;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Library-wide settings bound from {@code idempotency.*}. Per-endpoint behaviour
+ * stays on {@link com.example.idempotency.annotation.Idempotent}.
+ */
+@ConfigurationProperties(prefix = "idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Replace the client-supplied key with a fixed-length digest before it reaches Redis.
+     * Bounds per-record key size no matter how long the client's keys are.
+     */
+    private boolean compactKeys = false;
+
+    private StorageLayout storageLayout = StorageLayout.KEY_PAIR;
+
+    private final Monitor monitor = new Monitor();
+
+    private final ReplicaReads replicaReads = new ReplicaReads();
+
+    private final Sharding sharding = new Sharding();
+
+    private final DecisionLog decisionLog = new DecisionLog();
+
+    private final Shutdown shutdown = new Shutdown();
+
+    public boolean isCompactKeys() { return compactKeys; }
+    public void setCompactKeys(boolean compactKeys) { this.compactKeys = compactKeys; }
+
+    public StorageLayout getStorageLayout() { return storageLayout; }
+    public void setStorageLayout(StorageLayout storageLayout) { this.storageLayout = storageLayout; }
+
+    public Monitor getMonitor() { return monitor; }
+
+    public ReplicaReads getReplicaReads() { return replicaReads; }
+
+    public Sharding getSharding() { return sharding; }
+
+    public DecisionLog getDecisionLog() { return decisionLog; }
+
+    public Shutdown getShutdown() { return shutdown; }
+
+    public enum StorageLayout {
+        /** Response under {@code key}, lock under {@code key:lock} (two top-level keys). */
+        KEY_PAIR,
+        /** Lock state and response share one Redis hash per idempotency key. */
+        HASH
+    }
+
+    public static class Monitor {
+        /** Counters per row of the hot-key count-min sketch; must be a power of two. */
+        private int sketchWidth = 4096;
+        /** Number of hottest keys reported by the actuator endpoint. */
+        private int topKeys = 20;
+        /** Upper bound for {@code ?sample=N}, which costs one SCAN step plus one MEMORY USAGE per key. */
+        private int maxSampleKeys = 10_000;
+
+        public int getSketchWidth() { return sketchWidth; }
+        public void setSketchWidth(int sketchWidth) { this.sketchWidth = sketchWidth; }
+
+        public int getTopKeys() { return topKeys; }
+        public void setTopKeys(int topKeys) { this.topKeys = topKeys; }
+
+        public int getMaxSampleKeys() { return maxSampleKeys; }
+        public void setMaxSampleKeys(int maxSampleKeys) { this.maxSampleKeys = maxSampleKeys; }
+    }
+
+    public static class ReplicaReads {
+        /** Serve cached-response lookups from replicas; locks and writes stay on the primary. */
+        private boolean enabled = false;
+        /**
+         * Replica addresses as {@code host:port}. The primary, credentials and client settings
+         * (SSL, timeouts, client name) come from {@code spring.data.redis}.
+         */
+        private List<String> nodes = new ArrayList<>();
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public List<String> getNodes() { return nodes; }
+        public void setNodes(List<String> nodes) { this.nodes = nodes; }
+    }
+
+    public static class Sharding {
+        /**
+         * Independent Redis instances to spread records over with a consistent-hash ring.
+         * Empty means all records go to the {@code spring.data.redis} instance. Adding shards moves
+         * keys between them; list the old shard names in {@code previous-shards} to keep moved keys
+         * idempotent while nodes roll over.
+         */
+        private List<Shard> shards = new ArrayList<>();
+        /** Ring points per shard; more points give a more even spread. */
+        private int virtualNodes = ShardedIdempotencyStore.DEFAULT_VIRTUAL_NODES;
+        /**
+         * Names of the shards before the latest change, all still listed in {@code shards}. Moved
+         * keys are then also looked up and locked on their previous shard for {@code migration-window}.
+         */
+        private List<String> previousShards = new ArrayList<>();
+        /**
+         * How long after startup moved keys are served by both shards. Must cover the longest
+         * idempotency TTL, counted from when the last node on the previous shard list stopped.
+         */
+        private Duration migrationWindow = Duration.ofHours(1);
+
+        public List<Shard> getShards() { return shards; }
+        public void setShards(List<Shard> shards) { this.shards = shards; }
+
+        public int getVirtualNodes() { return virtualNodes; }
+        public void setVirtualNodes(int virtualNodes) { this.virtualNodes = virtualNodes; }
+
+        public List<String> getPreviousShards() { return previousShards; }
+        public void setPreviousShards(List<String> previousShards) { this.previousShards = previousShards; }
+
+        public Duration getMigrationWindow() { return migrationWindow; }
+        public void setMigrationWindow(Duration migrationWindow) { this.migrationWindow = migrationWindow; }
+    }
+
+    public static class Shard {
+        /** Stable shard identity; it positions the shard on the ring, so renaming one moves its keys. */
+        private String name;
+        private String host = "localhost";
+        private int port = 6379;
+        private String username;
+        private String password;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public String getHost() { return host; }
+        public void setHost(String host) { this.host = host; }
+
+        public int getPort() { return port; }
+        public void setPort(int port) { this.port = port; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+    }
+
+    public static class DecisionLog {
+        /** Record every idempotency decision asynchronously for audits. */
+        private boolean enabled = false;
+        /** Directory of the rolling NDJSON files, used unless a DecisionEventSink bean is defined. */
+        private Path directory = Path.of("idempotency-decisions");
+        private DataSize maxFileSize = DataSize.ofMegabytes(64);
+        private int maxFiles = 10;
+        /** Ring buffer slots; must be a power of two. Events beyond this backlog are dropped. */
+        private int bufferSize = 8192;
+        private int batchSize = 512;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public Path getDirectory() { return directory; }
+        public void setDirectory(Path directory) { this.directory = directory; }
+
+        public DataSize getMaxFileSize() { return maxFileSize; }
+        public void setMaxFileSize(DataSize maxFileSize) { this.maxFileSize = maxFileSize; }
+
+        public int getMaxFiles() { return maxFiles; }
+        public void setMaxFiles(int maxFiles) { this.maxFiles = maxFiles; }
+
+        public int getBufferSize() { return bufferSize; }
+        public void setBufferSize(int bufferSize) { this.bufferSize = bufferSize; }
+
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+    }
+
+    public static class Shutdown {
+        /**
+         * How long shutdown waits for in-flight idempotent handlers before force-releasing their locks.
+         * Runs alongside web graceful shutdown; keep it below {@code spring.lifecycle.timeout-per-shutdown-phase}.
+         */
+        private Duration drainTimeout = Duration.ofSeconds(15);
+
+        public Duration getDrainTimeout() { return drainTimeout; }
+        public void setDrainTimeout(Duration drainTimeout) { this.drainTimeout = drainTimeout; }
+    }
+}
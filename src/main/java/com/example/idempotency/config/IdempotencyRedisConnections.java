@@ -0,0 +1,42 @@
+package com.example.idempotency.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Owns the extra Redis connections the library opens beside the application's own
+ * connection factory. They are deliberately not registered as {@code RedisConnectionFactory}
+ * beans, which would switch off Spring Boot's Redis auto-configuration.
+ */
+public class IdempotencyRedisConnections implements DisposableBean {
+
+    private final List<LettuceConnectionFactory> factories = new CopyOnWriteArrayList<>();
+
+    public StringRedisTemplate createTemplate(RedisConfiguration configuration,
+                                              LettuceClientConfiguration clientConfiguration) {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(configuration, clientConfiguration);
+        factory.afterPropertiesSet();
+        factory.start();
+        factories.add(factory);
+        return new StringRedisTemplate(factory);
+    }
+
+    public List<RedisConnectionFactory> connectionFactories() {
+        return List.copyOf(factories);
+    }
+
+    @Override
+    public void destroy() {
+        for (LettuceConnectionFactory factory : factories) {
+            factory.destroy();
+        }
+        factories.clear();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.idempotency.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opens every Redis connection the library uses with a {@code PING} on a background thread
+ * once the application is ready. Startup never blocks on Redis, and the first idempotent
+ * request usually finds its connection already established. A failed warm-up is only
+ * logged; the connection is then opened on first use as before.
+ */
+public class IdempotencyRedisWarmUp implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyRedisWarmUp.class);
+
+    private final RedisConnectionFactory primary;
+    private final IdempotencyRedisConnections connections;
+
+    public IdempotencyRedisWarmUp(RedisConnectionFactory primary, IdempotencyRedisConnections connections) {
+        this.primary = primary;
+        this.connections = connections;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        Thread thread = new Thread(this::warmUp, "idempotency-redis-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void warmUp() {
+        List<RedisConnectionFactory> factories = new ArrayList<>();
+        factories.add(primary);
+        factories.addAll(connections.connectionFactories());
+        for (RedisConnectionFactory factory : factories) {
+            long startedAt = System.nanoTime();
+            try (RedisConnection connection = factory.getConnection()) {
+                connection.ping();
+                log.debug("Warmed up Redis connection in {} ms", (System.nanoTime() - startedAt) / 1_000_000);
+            } catch (Exception e) {
+                log.warn("Redis warm-up failed, connecting on first use instead: {}", e.getMessage());
+            }
+        }
+    }
+}
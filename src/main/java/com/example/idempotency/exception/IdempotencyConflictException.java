@@ -1,11 +1,24 @@
 package com.example.idempotency.exception;
 
-import org.springframework.http.HttpStatus;
-import org.springframework.web.bind.annotation.ResponseStatus;
-
-@ResponseStatus(HttpStatus.CONFLICT)
+/**
+ * Thrown when another request with the same idempotency key is still being processed.
+ * HTTP mapping (409, plus {@code Retry-After} when known) is handled by the web layer.
+ */
 public class IdempotencyConflictException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
     public IdempotencyConflictException(String idempotencyKey) {
+        this(idempotencyKey, 0);
+    }
+
+    /**
+     * @param retryAfterSeconds expected seconds until the in-flight request completes, or 0 if unknown
+     */
+    public IdempotencyConflictException(String idempotencyKey, long retryAfterSeconds) {
         super("Request with idempotency key '" + idempotencyKey + "' is already being processed");
+        this.retryAfterSeconds = retryAfterSeconds;
     }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
 }
@@ -1,5 +1,6 @@
 package com.example.idempotency.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -26,5 +27,22 @@ public class IdempotencyExceptionHandler {
                 .body(new ErrorBody(ex.getMessage()));
     }
 
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ErrorBody> handleConflict(IdempotencyConflictException ex) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.CONFLICT);
+        if (ex.getRetryAfterSeconds() > 0) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        }
+        return response.body(new ErrorBody(ex.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyShuttingDownException.class)
+    public ResponseEntity<ErrorBody> handleShuttingDown(IdempotencyShuttingDownException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorBody(ex.getMessage()));
+    }
+
     public record ErrorBody(String message) {}
 }
@@ -1,11 +1,19 @@
 package com.example.idempotency.exception;
 
 /**
- * Thrown when a required idempotency header is missing.
+ * Thrown when a required idempotency header is missing, or a key expression yields no value.
  * HTTP mapping (e.g. 400) is handled by the web layer.
  */
 public class IdempotencyKeyMissingException extends RuntimeException {
     public IdempotencyKeyMissingException(String headerName) {
-        super("Missing required idempotency header: " + headerName);
+        this("Missing required idempotency header: ", headerName);
+    }
+
+    private IdempotencyKeyMissingException(String reason, String source) {
+        super(reason + source);
+    }
+
+    public static IdempotencyKeyMissingException forExpression(String expression) {
+        return new IdempotencyKeyMissingException("Idempotency key expression evaluated to no value: ", expression);
     }
 }
@@ -0,0 +1,11 @@
+package com.example.idempotency.exception;
+
+/**
+ * Thrown when new idempotent work arrives while this node is shutting down and draining its locks.
+ * HTTP mapping (e.g. 503) is handled by the web layer.
+ */
+public class IdempotencyShuttingDownException extends RuntimeException {
+    public IdempotencyShuttingDownException(String idempotencyKey) {
+        super("Node is shutting down; retry request with idempotency key '" + idempotencyKey + "'");
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.idempotency.lifecycle;
+
+import com.example.idempotency.monitor.HeldLockRegistry;
+import com.example.idempotency.store.IdempotencyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Releases this node's idempotency locks on shutdown so client retries after a deploy succeed
+ * at once instead of getting 409 until the lock TTL expires.
+ *
+ * <p>On stop it refuses new idempotent work, waits up to {@code drainTimeout} for in-flight
+ * handlers (locked and fail-open) to finish and release their own locks, then releases
+ * whatever is still held in one batch. Handlers that finish later see their lock is gone and
+ * skip the unlock, so they cannot delete a lock another node has taken since.
+ *
+ * <p>Runs in the same phase as the web server's graceful shutdown and drains on its own
+ * thread, so both waits overlap instead of adding up; the Redis connection closes in a later
+ * phase. Both are bounded by {@code spring.lifecycle.timeout-per-shutdown-phase}, so keep
+ * {@code drainTimeout} below it, and keep that timeout (plus any preStop delay) below the
+ * pod's {@code terminationGracePeriodSeconds}.
+ */
+public class IdempotencyShutdownCoordinator implements SmartLifecycle {
+
+    public static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE;
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyShutdownCoordinator.class);
+    private static final long POLL_MILLIS = 50;
+
+    private final HeldLockRegistry heldLocks;
+    private final IdempotencyStore store;
+    private final Duration drainTimeout;
+    private volatile boolean running;
+
+    public IdempotencyShutdownCoordinator(HeldLockRegistry heldLocks, IdempotencyStore store, Duration drainTimeout) {
+        this.heldLocks = heldLocks;
+        this.store = store;
+        this.drainTimeout = drainTimeout;
+    }
+
+    @Override
+    public void start() {
+        heldLocks.setAccepting(true);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        heldLocks.setAccepting(false);
+        try {
+            drain();
+            releaseRemaining();
+        } finally {
+            running = false;
+        }
+    }
+
+    // Asynchronous so the lifecycle processor runs graceful shutdown alongside the drain
+    @Override
+    public void stop(Runnable callback) {
+        heldLocks.setAccepting(false);
+        Thread drainer = new Thread(() -> {
+            try {
+                stop();
+            } finally {
+                callback.run();
+            }
+        }, "idempotency-shutdown-drain");
+        drainer.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        while (!heldLocks.isDrained() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void releaseRemaining() {
+        List<String> released = new ArrayList<>();
+        for (String key : heldLocks.snapshot().keySet()) {
+            // A handler finishing right now may win the race; it then unlocks the key itself
+            if (heldLocks.release(key)) {
+                released.add(key);
+            }
+        }
+        if (released.isEmpty()) {
+            return;
+        }
+        try {
+            store.unlockAll(released);
+            log.info("Released {} idempotency locks still held at shutdown", released.size());
+        } catch (Exception e) {
+            log.warn("Failed to release {} idempotency locks at shutdown: {}", released.size(), e.getMessage());
+        }
+    }
+}
@@ -8,18 +8,31 @@ public class CachedResponse {
     private final int statusCode;
     private final String body;
     private final String bodyHash;
+    // Set for a cached exception outcome; body then holds the exception message
+    private final String exceptionType;
+
+    public CachedResponse(int statusCode, String body, String bodyHash) {
+        this(statusCode, body, bodyHash, null);
+    }
 
     @JsonCreator
     public CachedResponse(
             @JsonProperty("statusCode") int statusCode,
             @JsonProperty("body") String body,
-            @JsonProperty("bodyHash") String bodyHash) {
+            @JsonProperty("bodyHash") String bodyHash,
+            @JsonProperty("exceptionType") String exceptionType) {
         this.statusCode = statusCode;
         this.body = body;
         this.bodyHash = bodyHash;
+        this.exceptionType = exceptionType;
+    }
+
+    public static CachedResponse ofException(Throwable exception, String bodyHash) {
+        return new CachedResponse(0, exception.getMessage(), bodyHash, exception.getClass().getName());
     }
 
     public int getStatusCode() { return statusCode; }
     public String getBody() { return body; }
     public String getBodyHash() { return bodyHash; }
+    public String getExceptionType() { return exceptionType; }
 }
@@ -0,0 +1,39 @@
+package com.example.idempotency.monitor;
+
+import java.lang.reflect.Method;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exponentially weighted moving average of handler duration per {@code @Idempotent} method.
+ * Keyed by the method rather than {@code keyPrefix}, which is often empty or shared between
+ * endpoints. Updates are a single CAS and allocate nothing once the method has been seen.
+ */
+public class HandlerLatencyTracker {
+
+    private static final double ALPHA = 0.2;
+
+    private final ConcurrentHashMap<Method, AtomicLong> averages = new ConcurrentHashMap<>();
+
+    public void record(Method endpoint, long durationNanos) {
+        if (endpoint == null) {
+            return;
+        }
+        AtomicLong average = averages.computeIfAbsent(endpoint, e -> new AtomicLong());
+        long current;
+        long updated;
+        do {
+            current = average.get();
+            updated = current == 0 ? durationNanos : current + Math.round(ALPHA * (durationNanos - current));
+        } while (!average.compareAndSet(current, Math.max(updated, 1)));
+    }
+
+    public OptionalLong expectedMillis(Method endpoint) {
+        AtomicLong average = endpoint != null ? averages.get(endpoint) : null;
+        if (average == null || average.get() == 0) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(average.get() / 1_000_000);
+    }
+}
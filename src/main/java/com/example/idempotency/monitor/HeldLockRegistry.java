@@ -0,0 +1,58 @@
+package com.example.idempotency.monitor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Idempotency locks currently held by this node, with the wall-clock time each was acquired,
+ * plus a count of handlers running fail-open without a lock. Also carries the node's admission
+ * state: once shutdown starts, no new locks should be taken.
+ */
+public class HeldLockRegistry {
+
+    private final ConcurrentHashMap<String, Long> locks = new ConcurrentHashMap<>();
+    private final AtomicInteger unlockedHandlers = new AtomicInteger();
+    private volatile boolean accepting = true;
+
+    public void register(String key) {
+        locks.put(key, System.currentTimeMillis());
+    }
+
+    /**
+     * @return {@code true} if this node still held the lock, i.e. the caller should release it in Redis
+     */
+    public boolean release(String key) {
+        return locks.remove(key) != null;
+    }
+
+    public int size() {
+        return locks.size();
+    }
+
+    /** A handler started without a lock (Redis unavailable); pair with {@link #exitUnlocked()}. */
+    public void enterUnlocked() {
+        unlockedHandlers.incrementAndGet();
+    }
+
+    public void exitUnlocked() {
+        unlockedHandlers.decrementAndGet();
+    }
+
+    /** No locked or fail-open handler is still running on this node. */
+    public boolean isDrained() {
+        return locks.isEmpty() && unlockedHandlers.get() == 0;
+    }
+
+    public Map<String, Long> snapshot() {
+        return Map.copyOf(locks);
+    }
+
+    public boolean isAccepting() {
+        return accepting;
+    }
+
+    public void setAccepting(boolean accepting) {
+        this.accepting = accepting;
+    }
+}
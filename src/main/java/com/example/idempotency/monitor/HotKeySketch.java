@@ -0,0 +1,170 @@
+package com.example.idempotency.monitor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming frequency sketch of idempotency keys, cheap enough to leave on in production.
+ *
+ * <p>Keys are counted in a count-min sketch, a fixed grid of counters indexed by the
+ * key's cached {@link String#hashCode()}, so recording allocates nothing. A key is offered
+ * to the top-K table only when its estimate reaches a power of two and beats the table's
+ * smallest entry, so even the hottest key takes the table lock about {@code log2(count)}
+ * times rather than on every hit. Table counts are re-read from the sketch when reported.
+ * Prefixes are bounded by the annotations in the application and are counted exactly;
+ * every prefix seen since startup stays in {@link #knownPrefixes()} across resets.
+ *
+ * <p>Estimates can over-count (never under-count) by roughly {@code total / width}. A key
+ * can reach the table up to one doubling later than an exact tracker would admit it.
+ */
+public class HotKeySketch {
+
+    private static final int DEPTH = 4;
+
+    private final int width;
+    private final int mask;
+    private final AtomicLongArray counters;
+    private final ConcurrentHashMap<String, LongAdder> prefixCounts = new ConcurrentHashMap<>();
+    private final Set<String> knownPrefixes = ConcurrentHashMap.newKeySet();
+
+    private final String[] topKeys;
+    private final long[] topCounts;
+    private int topSize;
+    private volatile long admissionThreshold;
+
+    public HotKeySketch(int width, int topK) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width must be a power of two: " + width);
+        }
+        this.width = width;
+        this.mask = width - 1;
+        this.counters = new AtomicLongArray(DEPTH * width);
+        this.topKeys = new String[topK];
+        this.topCounts = new long[topK];
+    }
+
+    public void record(String prefix, String key) {
+        prefixCounts.computeIfAbsent(prefix != null ? prefix : "", p -> {
+            knownPrefixes.add(p);
+            return new LongAdder();
+        }).increment();
+
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = row * width + ((h1 + row * h2) & mask);
+            estimate = Math.min(estimate, counters.incrementAndGet(index));
+        }
+
+        if ((estimate & (estimate - 1)) == 0 && estimate > admissionThreshold) {
+            offer(key, estimate);
+        }
+    }
+
+    public List<KeyCount> topKeys() {
+        List<String> keys = new ArrayList<>();
+        synchronized (this) {
+            for (int i = 0; i < topSize; i++) {
+                keys.add(topKeys[i]);
+            }
+        }
+        List<KeyCount> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            result.add(new KeyCount(key, estimate(key)));
+        }
+        result.sort(Comparator.comparingLong(KeyCount::count).reversed());
+        return result;
+    }
+
+    public Map<String, Long> prefixCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        prefixCounts.forEach((prefix, count) -> result.put(prefix, count.sum()));
+        return result;
+    }
+
+    public Set<String> knownPrefixes() {
+        return Set.copyOf(knownPrefixes);
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        prefixCounts.clear();
+        for (int i = 0; i < topSize; i++) {
+            topKeys[i] = null;
+            topCounts[i] = 0;
+        }
+        topSize = 0;
+        admissionThreshold = 0;
+    }
+
+    // Runs O(log count) times per key; refreshes the table so eviction compares current estimates
+    private synchronized void offer(String key, long estimate) {
+        int min = -1;
+        for (int i = 0; i < topSize; i++) {
+            topCounts[i] = estimate(topKeys[i]);
+        }
+        for (int i = 0; i < topSize; i++) {
+            if (topKeys[i].equals(key)) {
+                topCounts[i] = estimate;
+                updateThreshold();
+                return;
+            }
+            if (min < 0 || topCounts[i] < topCounts[min]) {
+                min = i;
+            }
+        }
+        if (topSize < topKeys.length) {
+            topKeys[topSize] = key;
+            topCounts[topSize] = estimate;
+            topSize++;
+        } else if (estimate > topCounts[min]) {
+            topKeys[min] = key;
+            topCounts[min] = estimate;
+        }
+        updateThreshold();
+    }
+
+    private void updateThreshold() {
+        if (topSize < topKeys.length) {
+            admissionThreshold = 0;
+            return;
+        }
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < topSize; i++) {
+            min = Math.min(min, topCounts[i]);
+        }
+        admissionThreshold = min;
+    }
+
+    private long estimate(String key) {
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(row * width + ((h1 + row * h2) & mask)));
+        }
+        return estimate;
+    }
+
+    // murmur3 fmix32: spreads String.hashCode() bits across the row index range
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    public record KeyCount(String key, long count) {}
+}
@@ -0,0 +1,85 @@
+package com.example.idempotency.monitor;
+
+import com.example.idempotency.audit.RingBufferDecisionLog;
+import com.example.idempotency.store.ShardedIdempotencyStore;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/idempotency}: hot keys and prefixes seen by the aspect, and locks held by
+ * this node, plus per-shard load when records are sharded and the number of decisions the
+ * decision log dropped when it is enabled. Pass {@code ?sample=N} to also
+ * scan up to N idempotency keys in the application's Redis; sampling is off when sharded.
+ * {@code DELETE} resets the hot-key counters.
+ *
+ * <p>The report lists raw idempotency keys and sampling costs Redis round trips, so the
+ * endpoint is not exposed over HTTP by default. Opt in with
+ * {@code management.endpoints.web.exposure.include=health,idempotency}, and only behind
+ * actuator security or on a management port that is not publicly reachable.
+ */
+@Endpoint(id = "idempotency")
+public class IdempotencyEndpoint {
+
+    private static final int MAX_LISTED_LOCKS = 1000;
+
+    private final HotKeySketch hotKeys;
+    private final HeldLockRegistry heldLocks;
+    private final IdempotencyKeySampler keySampler;
+    private final ShardedIdempotencyStore shardedStore;
+    private final RingBufferDecisionLog decisionLog;
+
+    /**
+     * @param keySampler   sampler over the Redis instance holding the records, or {@code null} to disable sampling
+     * @param shardedStore the store when records are sharded, to report per-shard load; otherwise {@code null}
+     * @param decisionLog  the decision log when enabled, to report dropped decisions; otherwise {@code null}
+     */
+    public IdempotencyEndpoint(HotKeySketch hotKeys, HeldLockRegistry heldLocks,
+                               @Nullable IdempotencyKeySampler keySampler,
+                               @Nullable ShardedIdempotencyStore shardedStore,
+                               @Nullable RingBufferDecisionLog decisionLog) {
+        this.hotKeys = hotKeys;
+        this.heldLocks = heldLocks;
+        this.keySampler = keySampler;
+        this.shardedStore = shardedStore;
+        this.decisionLog = decisionLog;
+    }
+
+    @ReadOperation
+    public IdempotencyReport report(@Nullable Integer sample) {
+        long now = System.currentTimeMillis();
+        List<HeldLock> locks = heldLocks.snapshot().entrySet().stream()
+                .map(entry -> new HeldLock(entry.getKey(), now - entry.getValue()))
+                .sorted(Comparator.comparingLong(HeldLock::ageMillis).reversed())
+                .limit(MAX_LISTED_LOCKS)
+                .toList();
+        IdempotencyKeySampler.RedisSample redis = keySampler != null && sample != null && sample > 0
+                ? keySampler.sample(sample, hotKeys.knownPrefixes())
+                : null;
+        Map<String, ShardedIdempotencyStore.ShardLoad> shards = shardedStore != null ? shardedStore.shardLoad() : null;
+        Long decisionLogDropped = decisionLog != null ? decisionLog.droppedCount() : null;
+        return new IdempotencyReport(hotKeys.topKeys(), hotKeys.prefixCounts(), heldLocks.size(), locks, redis, shards,
+                decisionLogDropped);
+    }
+
+    @DeleteOperation
+    public void resetHotKeys() {
+        hotKeys.reset();
+    }
+
+    public record HeldLock(String key, long ageMillis) {}
+
+    public record IdempotencyReport(
+            List<HotKeySketch.KeyCount> hotKeys,
+            Map<String, Long> prefixes,
+            int heldLockCount,
+            List<HeldLock> heldLocks,
+            IdempotencyKeySampler.RedisSample redis,
+            Map<String, ShardedIdempotencyStore.ShardLoad> shards,
+            Long decisionLogDropped) {}
+}
@@ -0,0 +1,97 @@
+package com.example.idempotency.monitor;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Samples idempotency keys in Redis per prefix. Uses incremental {@code SCAN} rather than
+ * {@code KEYS}, so Redis keeps serving traffic while the sample is taken, and fetches
+ * {@code MEMORY USAGE} for the sampled keys in one pipeline. Samples are capped at
+ * {@code maxSampleKeys} whatever the caller asks for.
+ *
+ * <p>Keys are grouped by the longest matching {@code keyPrefix} the caller knows about,
+ * since neither a prefix nor a SpEL key is guaranteed to be free of {@code ':'}. Keys
+ * that match no known prefix are reported under {@code ""}.
+ */
+public class IdempotencyKeySampler {
+
+    private static final String KEY_PATTERN = "idempotency:*";
+    private static final String LOCK_SUFFIX = ":lock";
+    private static final int SCAN_BATCH = 500;
+    private static final byte[] USAGE = "USAGE".getBytes(StandardCharsets.UTF_8);
+
+    private final StringRedisTemplate redisTemplate;
+    private final int maxSampleKeys;
+
+    public IdempotencyKeySampler(StringRedisTemplate redisTemplate, int maxSampleKeys) {
+        this.redisTemplate = redisTemplate;
+        this.maxSampleKeys = maxSampleKeys;
+    }
+
+    /**
+     * @param knownPrefixes {@code keyPrefix} values in use, e.g. {@link HotKeySketch#knownPrefixes()}
+     */
+    public RedisSample sample(int requestedKeys, Collection<String> knownPrefixes) {
+        int maxKeys = Math.min(requestedKeys, maxSampleKeys);
+        List<String> keys = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PATTERN).count(SCAN_BATCH).build();
+        boolean truncated;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (keys.size() < maxKeys && cursor.hasNext()) {
+                keys.add(cursor.next());
+            }
+            truncated = cursor.hasNext();
+        }
+
+        List<Object> sizes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                memoryUsage(connection, key);
+            }
+            return null;
+        });
+
+        Map<String, PrefixStats> byPrefix = new TreeMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            long bytes = sizes.get(i) instanceof Number n ? n.longValue() : 0L;
+            boolean lock = key.endsWith(LOCK_SUFFIX);
+            byPrefix.merge(prefixOf(key, knownPrefixes), new PrefixStats(lock ? 0 : 1, lock ? 1 : 0, bytes), PrefixStats::plus);
+        }
+        return new RedisSample(keys.size(), truncated, byPrefix);
+    }
+
+    private static void memoryUsage(RedisConnection connection, String key) {
+        connection.execute("MEMORY", USAGE, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // idempotency:{prefix}:{key} -> the longest known prefix; anything else -> ""
+    static String prefixOf(String key, Collection<String> knownPrefixes) {
+        String rest = key.substring(KEY_PATTERN.length() - 1);
+        String longest = "";
+        for (String prefix : knownPrefixes) {
+            if (prefix.length() > longest.length() && rest.startsWith(prefix)
+                    && rest.length() > prefix.length() && rest.charAt(prefix.length()) == ':') {
+                longest = prefix;
+            }
+        }
+        return longest;
+    }
+
+    public record PrefixStats(long keys, long locks, long bytes) {
+        PrefixStats plus(PrefixStats other) {
+            return new PrefixStats(keys + other.keys, locks + other.locks, bytes + other.bytes);
+        }
+    }
+
+    public record RedisSample(int sampledKeys, boolean truncated, Map<String, PrefixStats> prefixes) {}
+}
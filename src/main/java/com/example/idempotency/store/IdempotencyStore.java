@@ -2,7 +2,9 @@ package com.example.idempotency.store;
 
 import com.example.idempotency.model.CachedResponse;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
 
 public interface IdempotencyStore {
@@ -10,4 +12,21 @@ public interface IdempotencyStore {
     void put(String key, CachedResponse response, long ttl, TimeUnit timeUnit);
     boolean tryLock(String key, long lockTtl, TimeUnit timeUnit);
     void unlock(String key);
+    /**
+     * Epoch millis at which the lock for {@code key} was acquired, if it is currently held.
+     * Stores that do not track it return empty; Retry-After then assumes the lock was just taken.
+     */
+    default OptionalLong lockAcquiredAt(String key) {
+        return OptionalLong.empty();
+    }
+    /**
+     * Removes a completed record that can no longer be replayed so the key can be processed
+     * again. Never removes a held lock. Stores that cannot evict leave the record to expire.
+     */
+    default void evict(String key) {
+    }
+    /** Releases many locks at once; Redis-backed stores send them in a single round trip. */
+    default void unlockAll(Collection<String> keys) {
+        keys.forEach(this::unlock);
+    }
 }
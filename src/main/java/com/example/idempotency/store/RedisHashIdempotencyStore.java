@@ -0,0 +1,171 @@
+package com.example.idempotency.store;
+
+import com.example.idempotency.model.CachedResponse;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps lock state and cached response in a single Redis hash per idempotency key,
+ * instead of the two top-level keys used by {@link RedisIdempotencyStore}.
+ *
+ * <p>The {@code s} field drives a small state machine:
+ * <pre>
+ *   (absent) --tryLock--> P (processing, t = acquired at) --put--> C (completed)
+ *                         P --unlock--> (absent)
+ * </pre>
+ * Field names are kept to one character so small hashes stay in Redis' compact
+ * listpack encoding with minimal per-record overhead.
+ */
+public class RedisHashIdempotencyStore implements IdempotencyStore {
+
+    static final String STATE = "s";
+    static final String STATUS = "c";
+    static final String BODY = "b";
+    static final String BODY_HASH = "h";
+    static final String LOCKED_AT = "t";
+    static final String EXCEPTION_TYPE = "x";
+
+    static final String PROCESSING = "P";
+    static final String COMPLETED = "C";
+
+    // Script text is built once from the constants above, so a rename cannot desync the state
+    // machine; ARGV carries only per-call values.
+    private static final RedisScript<Long> TRY_LOCK = new DefaultRedisScript<>(
+            "if redis.call('HSETNX', KEYS[1], " + lua(STATE) + ", " + lua(PROCESSING) + ") == 1 then "
+                    + "redis.call('HSET', KEYS[1], " + lua(LOCKED_AT) + ", ARGV[2]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[1]) return 1 end "
+                    + "return 0",
+            Long.class);
+
+    private static final RedisScript<Long> PUT = new DefaultRedisScript<>(
+            "redis.call('HDEL', KEYS[1], " + lua(LOCKED_AT) + ") "
+                    + "redis.call('HSET', KEYS[1], " + lua(STATE) + ", " + lua(COMPLETED) + ", "
+                    + lua(STATUS) + ", ARGV[2], " + lua(BODY) + ", ARGV[3]) "
+                    + "if ARGV[4] ~= '' then redis.call('HSET', KEYS[1], " + lua(BODY_HASH) + ", ARGV[4]) end "
+                    + "if ARGV[5] ~= '' then redis.call('HSET', KEYS[1], " + lua(EXCEPTION_TYPE) + ", ARGV[5]) end "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[1]) "
+                    + "return 1",
+            Long.class);
+
+    // Only a processing record is removed; a completed response outlives its lock.
+    private static final RedisScript<Long> UNLOCK = deleteInState(PROCESSING);
+
+    // Only a completed record is removed; a processing record belongs to its lock holder.
+    private static final RedisScript<Long> EVICT = deleteInState(COMPLETED);
+
+    private static final List<Object> RESPONSE_FIELDS = List.of(STATE, STATUS, BODY, BODY_HASH, EXCEPTION_TYPE);
+
+    private final StringRedisTemplate redisTemplate;
+    private final StringRedisTemplate readTemplate;
+
+    public RedisHashIdempotencyStore(StringRedisTemplate redisTemplate) {
+        this(redisTemplate, null);
+    }
+
+    /**
+     * @param readTemplate replica-backed template for cached-response lookups, or {@code null} to read
+     *                     from the primary. Locks and writes always go to {@code redisTemplate}.
+     */
+    public RedisHashIdempotencyStore(StringRedisTemplate redisTemplate, StringRedisTemplate readTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.readTemplate = readTemplate;
+    }
+
+    @Override
+    public Optional<CachedResponse> get(String key) {
+        // A replica may still hold the processing state; only a completed record counts as a hit
+        List<Object> values = ReplicaReads.read(readTemplate, redisTemplate,
+                template -> completedOrNull(template.opsForHash().multiGet(key, RESPONSE_FIELDS)));
+        if (values == null) {
+            return Optional.empty();
+        }
+        try {
+            int statusCode = Integer.parseInt((String) values.get(1));
+            return Optional.of(new CachedResponse(statusCode, (String) values.get(2), (String) values.get(3),
+                    (String) values.get(4)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static List<Object> completedOrNull(List<Object> values) {
+        return values != null && COMPLETED.equals(values.get(0)) ? values : null;
+    }
+
+    @Override
+    public void put(String key, CachedResponse response, long ttl, TimeUnit timeUnit) {
+        redisTemplate.execute(PUT, List.of(key),
+                String.valueOf(timeUnit.toMillis(ttl)),
+                String.valueOf(response.getStatusCode()),
+                response.getBody() != null ? response.getBody() : "",
+                response.getBodyHash() != null ? response.getBodyHash() : "",
+                response.getExceptionType() != null ? response.getExceptionType() : "");
+    }
+
+    @Override
+    public boolean tryLock(String key, long lockTtl, TimeUnit timeUnit) {
+        Long acquired = redisTemplate.execute(TRY_LOCK, List.of(key),
+                String.valueOf(timeUnit.toMillis(lockTtl)), String.valueOf(System.currentTimeMillis()));
+        return acquired != null && acquired == 1L;
+    }
+
+    @Override
+    public void unlock(String key) {
+        redisTemplate.execute(UNLOCK, List.of(key));
+    }
+
+    @Override
+    public void evict(String key) {
+        redisTemplate.execute(EVICT, List.of(key));
+    }
+
+    @Override
+    public void unlockAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        byte[] script = UNLOCK.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.scriptingCommands().eval(script, ReturnType.INTEGER, 1, key.getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public OptionalLong lockAcquiredAt(String key) {
+        List<Object> values = redisTemplate.opsForHash().multiGet(key, List.of(STATE, LOCKED_AT));
+        if (values == null || !PROCESSING.equals(values.get(0)) || values.get(1) == null) {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(Long.parseLong((String) values.get(1)));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    private static RedisScript<Long> deleteInState(String state) {
+        return new DefaultRedisScript<>(
+                "if redis.call('HGET', KEYS[1], " + lua(STATE) + ") == " + lua(state) + " then "
+                        + "return redis.call('DEL', KEYS[1]) end "
+                        + "return 0",
+                Long.class);
+    }
+
+    // Field names and states are plain ASCII letters, so single quotes need no escaping
+    private static String lua(String literal) {
+        return "'" + literal + "'";
+    }
+}
@@ -5,22 +5,34 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
 
 public class RedisIdempotencyStore implements IdempotencyStore {
 
     private final StringRedisTemplate redisTemplate;
+    private final StringRedisTemplate readTemplate;
     private final ObjectMapper objectMapper;
 
     public RedisIdempotencyStore(StringRedisTemplate redisTemplate) {
+        this(redisTemplate, null);
+    }
+
+    /**
+     * @param readTemplate replica-backed template for cached-response lookups, or {@code null} to read
+     *                     from the primary. Locks and writes always go to {@code redisTemplate}.
+     */
+    public RedisIdempotencyStore(StringRedisTemplate redisTemplate, StringRedisTemplate readTemplate) {
         this.redisTemplate = redisTemplate;
+        this.readTemplate = readTemplate;
         this.objectMapper = new ObjectMapper();
     }
 
     @Override
     public Optional<CachedResponse> get(String key) {
-        String json = redisTemplate.opsForValue().get(key);
+        String json = ReplicaReads.read(readTemplate, redisTemplate, template -> template.opsForValue().get(key));
         if (json == null) {
             return Optional.empty();
         }
@@ -44,7 +56,9 @@ public class RedisIdempotencyStore implements IdempotencyStore {
     @Override
     public boolean tryLock(String key, long lockTtl, TimeUnit timeUnit) {
         String lockKey = key + ":lock";
-        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, "PROCESSING", lockTtl, timeUnit);
+        // Lock value is the acquisition time, so conflicting requests can estimate remaining work
+        String acquiredAt = String.valueOf(System.currentTimeMillis());
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, acquiredAt, lockTtl, timeUnit);
         return Boolean.TRUE.equals(acquired);
     }
 
@@ -53,4 +67,26 @@ public class RedisIdempotencyStore implements IdempotencyStore {
         String lockKey = key + ":lock";
         redisTemplate.delete(lockKey);
     }
+
+    @Override
+    public void evict(String key) {
+        redisTemplate.delete(key);
+    }
+
+    @Override
+    public void unlockAll(Collection<String> keys) {
+        if (!keys.isEmpty()) {
+            redisTemplate.delete(keys.stream().map(key -> key + ":lock").toList());
+        }
+    }
+
+    @Override
+    public OptionalLong lockAcquiredAt(String key) {
+        String value = redisTemplate.opsForValue().get(key + ":lock");
+        try {
+            return value != null ? OptionalLong.of(Long.parseLong(value)) : OptionalLong.empty();
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package com.example.idempotency.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Replay lookups against a replica with primary fallback. A replica miss may only mean the
+ * write has not replicated yet, so it is retried on the primary before being reported as a
+ * miss; replica errors fall back the same way. Errors are logged at warn at most once a
+ * minute, with the number of failures since the previous warning, so a lost replica shows
+ * up in the logs without flooding them while the primary absorbs every read.
+ */
+final class ReplicaReads {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaReads.class);
+
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final AtomicLong nextWarnAt = new AtomicLong(System.nanoTime());
+    private static final LongAdder failuresSinceWarn = new LongAdder();
+
+    private ReplicaReads() {}
+
+    static <T> T read(StringRedisTemplate replica, StringRedisTemplate primary, Function<StringRedisTemplate, T> lookup) {
+        if (replica != null) {
+            try {
+                T value = lookup.apply(replica);
+                if (value != null) {
+                    return value;
+                }
+            } catch (Exception e) {
+                replicaFailed(e);
+            }
+        }
+        return lookup.apply(primary);
+    }
+
+    private static void replicaFailed(Exception e) {
+        failuresSinceWarn.increment();
+        long now = System.nanoTime();
+        long next = nextWarnAt.get();
+        if (now - next >= 0 && nextWarnAt.compareAndSet(next, now + WARN_INTERVAL_NANOS)) {
+            log.warn("Replica read failed, retrying on primary ({} failures since last warning): {}",
+                    failuresSinceWarn.sumThenReset(), e.toString());
+        } else {
+            log.debug("Replica read failed, retrying on primary: {}", e.getMessage());
+        }
+    }
+}
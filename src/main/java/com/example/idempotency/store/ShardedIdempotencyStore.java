@@ -0,0 +1,269 @@
+package com.example.idempotency.store;
+
+import com.example.idempotency.model.CachedResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spreads idempotency records over independent stores (e.g. standalone Redis instances)
+ * with a consistent-hash ring. Every operation routes on the same idempotency key, so a
+ * key's lock and cached response always live on the same shard.
+ *
+ * <p>Each shard owns {@code virtualNodes} points on the ring, which evens out the load and
+ * means adding a shard only moves about {@code 1 / (shards + 1)} of the keys, all of them
+ * to the new shard.
+ *
+ * <p>The shard set is fixed for the life of the store. To add shards without losing the
+ * records of moved keys, name the shards of the previous ring and a migration window: until
+ * it ends, a key whose owner changed is looked up and locked on both its new and previous
+ * owners, and completed responses are written to both, so nodes still running the previous
+ * shard list keep seeing them. The window must cover the longest TTL, counted from when the
+ * last node on the previous shard list stops.
+ */
+public class ShardedIdempotencyStore implements IdempotencyStore {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final Map<String, Shard> shards = new LinkedHashMap<>();
+    private final Ring ring;
+    private final Ring previousRing;
+    private final long migrationDeadline;
+
+    public ShardedIdempotencyStore(Map<String, ? extends IdempotencyStore> shards) {
+        this(shards, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ShardedIdempotencyStore(Map<String, ? extends IdempotencyStore> shards, int virtualNodes) {
+        this(shards, virtualNodes, List.of(), Duration.ZERO);
+    }
+
+    /**
+     * @param previousShards  names of the shards that made up the previous ring, all of them present in
+     *                        {@code shards}; empty when not migrating
+     * @param migrationWindow how long, from now, keys that moved are also served by their previous owner
+     */
+    public ShardedIdempotencyStore(Map<String, ? extends IdempotencyStore> shards, int virtualNodes,
+                                   Collection<String> previousShards, Duration migrationWindow) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        shards.forEach((name, store) -> this.shards.put(name, new Shard(name, store)));
+        this.ring = Ring.build(this.shards.values(), virtualNodes);
+
+        List<Shard> previous = new ArrayList<>();
+        for (String name : previousShards) {
+            Shard shard = this.shards.get(name);
+            if (shard == null) {
+                throw new IllegalArgumentException("Previous shard " + name + " is not among the current shards");
+            }
+            previous.add(shard);
+        }
+        this.previousRing = previous.isEmpty() ? null : Ring.build(previous, virtualNodes);
+        this.migrationDeadline = System.nanoTime() + migrationWindow.toNanos();
+    }
+
+    public String shardFor(String key) {
+        return ring.locate(key).name;
+    }
+
+    /** Operations routed to each shard and the share of the key space each one owns. */
+    public Map<String, ShardLoad> shardLoad() {
+        Map<String, ShardLoad> load = new LinkedHashMap<>();
+        Map<Shard, Double> shares = ring.shares();
+        for (Shard shard : shards.values()) {
+            load.put(shard.name, new ShardLoad(shard.operations.sum(), shares.getOrDefault(shard, 0.0)));
+        }
+        return load;
+    }
+
+    @Override
+    public Optional<CachedResponse> get(String key) {
+        Shard owner = ring.locate(key);
+        Optional<CachedResponse> response = route(owner).get(key);
+        Shard previous = previousOwner(key, owner);
+        return response.isPresent() || previous == null ? response : route(previous).get(key);
+    }
+
+    @Override
+    public void put(String key, CachedResponse response, long ttl, TimeUnit timeUnit) {
+        Shard owner = ring.locate(key);
+        route(owner).put(key, response, ttl, timeUnit);
+        Shard previous = previousOwner(key, owner);
+        if (previous != null) {
+            route(previous).put(key, response, ttl, timeUnit);
+        }
+    }
+
+    // A moved key is held on both owners, so a node still on the previous ring cannot lock it concurrently
+    @Override
+    public boolean tryLock(String key, long lockTtl, TimeUnit timeUnit) {
+        Shard owner = ring.locate(key);
+        if (!route(owner).tryLock(key, lockTtl, timeUnit)) {
+            return false;
+        }
+        Shard previous = previousOwner(key, owner);
+        if (previous != null && !route(previous).tryLock(key, lockTtl, timeUnit)) {
+            route(owner).unlock(key);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void unlock(String key) {
+        Shard owner = ring.locate(key);
+        route(owner).unlock(key);
+        Shard previous = previousOwner(key, owner);
+        if (previous != null) {
+            route(previous).unlock(key);
+        }
+    }
+
+    @Override
+    public void evict(String key) {
+        Shard owner = ring.locate(key);
+        route(owner).evict(key);
+        Shard previous = previousOwner(key, owner);
+        if (previous != null) {
+            route(previous).evict(key);
+        }
+    }
+
+    @Override
+    public void unlockAll(Collection<String> keys) {
+        Map<Shard, List<String>> byShard = new LinkedHashMap<>();
+        for (String key : keys) {
+            Shard owner = ring.locate(key);
+            byShard.computeIfAbsent(owner, shard -> new ArrayList<>()).add(key);
+            Shard previous = previousOwner(key, owner);
+            if (previous != null) {
+                byShard.computeIfAbsent(previous, shard -> new ArrayList<>()).add(key);
+            }
+        }
+        byShard.forEach((shard, shardKeys) -> {
+            shard.operations.increment();
+            shard.store.unlockAll(shardKeys);
+        });
+    }
+
+    @Override
+    public OptionalLong lockAcquiredAt(String key) {
+        Shard owner = ring.locate(key);
+        OptionalLong acquiredAt = route(owner).lockAcquiredAt(key);
+        Shard previous = previousOwner(key, owner);
+        return acquiredAt.isPresent() || previous == null ? acquiredAt : route(previous).lockAcquiredAt(key);
+    }
+
+    /** Whether moved keys are still served by their previous owner as well. */
+    public boolean isMigrating() {
+        return previousRing != null && System.nanoTime() - migrationDeadline < 0;
+    }
+
+    // The key's owner on the previous ring while migrating, if it differs from the current owner
+    private Shard previousOwner(String key, Shard owner) {
+        if (!isMigrating()) {
+            return null;
+        }
+        Shard previous = previousRing.locate(key);
+        return previous != owner ? previous : null;
+    }
+
+    private static IdempotencyStore route(Shard shard) {
+        shard.operations.increment();
+        return shard.store;
+    }
+
+    // FNV-1a over the UTF-16 chars, finished with murmur3's fmix64; allocation-free
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public record ShardLoad(long operations, double keyShare) {}
+
+    private static final class Shard {
+        final String name;
+        final IdempotencyStore store;
+        final LongAdder operations = new LongAdder();
+
+        Shard(String name, IdempotencyStore store) {
+            this.name = name;
+            this.store = store;
+        }
+    }
+
+    private static final class Ring {
+        final long[] points;
+        final Shard[] owners;
+
+        private Ring(long[] points, Shard[] owners) {
+            this.points = points;
+            this.owners = owners;
+        }
+
+        static Ring build(Iterable<Shard> shards, int virtualNodes) {
+            Map<Long, Shard> byPoint = new TreeMap<>();
+            for (Shard shard : shards) {
+                for (int i = 0; i < virtualNodes; i++) {
+                    byPoint.putIfAbsent(hash(shard.name + "#" + i), shard);
+                }
+            }
+            long[] points = new long[byPoint.size()];
+            Shard[] owners = new Shard[byPoint.size()];
+            int i = 0;
+            for (Map.Entry<Long, Shard> entry : byPoint.entrySet()) {
+                points[i] = entry.getKey();
+                owners[i] = entry.getValue();
+                i++;
+            }
+            return new Ring(points, owners);
+        }
+
+        // First point clockwise from the key's hash, wrapping past the end of the ring
+        Shard locate(String key) {
+            int index = Arrays.binarySearch(points, hash(key));
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return owners[index == points.length ? 0 : index];
+        }
+
+        // Each point owns the arc ending at it, i.e. (previous point, this point]
+        Map<Shard, Double> shares() {
+            Map<Shard, Double> shares = new LinkedHashMap<>();
+            if (points.length == 1) {
+                shares.put(owners[0], 1.0);
+                return shares;
+            }
+            for (int i = 0; i < points.length; i++) {
+                long previous = points[i == 0 ? points.length - 1 : i - 1];
+                shares.merge(owners[i], unsignedToDouble(points[i] - previous) / 0x1p64, Double::sum);
+            }
+            return shares;
+        }
+
+        private static double unsignedToDouble(long value) {
+            return (double) (value >>> 1) * 2.0 + (value & 1);
+        }
+    }
+}
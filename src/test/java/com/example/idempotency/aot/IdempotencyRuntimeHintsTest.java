@@ -0,0 +1,77 @@
+package com.example.idempotency.aot;
+
+import com.example.idempotency.annotation.CacheOutcome;
+import com.example.idempotency.annotation.Idempotent;
+import com.example.idempotency.aspect.IdempotencyAspect;
+import com.example.idempotency.exception.IdempotencyConflictException;
+import com.example.idempotency.exception.IdempotencyExceptionHandler;
+import com.example.idempotency.model.CachedResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    // Source of a real @Idempotent for the reflective processor
+    @SuppressWarnings("unused")
+    @Idempotent(cacheOutcomes = @CacheOutcome(exception = IllegalStateException.class))
+    public void dummyOutcomeEndpoint() {}
+
+    @SuppressWarnings("unused")
+    @Idempotent(key = "#message.orderId")
+    public OrderConfirmation dummyKeyedConsumer(OrderMessage message) {
+        return null;
+    }
+
+    public record OrderMessage(String orderId) {}
+
+    public record OrderConfirmation(String orderId, String status) {}
+
+    @Test
+    void shouldRegisterJacksonBindingForCachedRecords() throws Exception {
+        new IdempotencyRuntimeHints().registerRuntimeHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.reflection().onConstructor(CachedResponse.class.getConstructor(
+                int.class, String.class, String.class, String.class)).invoke()).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(CachedResponse.class, "getExceptionType").invoke())
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(IdempotencyExceptionHandler.ErrorBody.class))
+                .accepts(hints);
+    }
+
+    @Test
+    void shouldRegisterAspectAndExceptions() {
+        new IdempotencyRuntimeHints().registerRuntimeHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(IdempotencyAspect.class, "handleIdempotency").invoke())
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(IdempotencyConflictException.class, "getRetryAfterSeconds")
+                .invoke()).accepts(hints);
+    }
+
+    @Test
+    void shouldRegisterConstructorsOfCacheableExceptions() throws Exception {
+        new IdempotentReflectiveProcessor().registerReflectionHints(hints.reflection(),
+                getClass().getMethod("dummyOutcomeEndpoint"));
+
+        assertThat(RuntimeHintsPredicates.reflection().onConstructor(IllegalStateException.class.getConstructor(String.class))
+                .invoke()).accepts(hints);
+    }
+
+    @Test
+    void shouldRegisterBindingForKeyArgumentsAndReplayedReturnType() throws Exception {
+        new IdempotentReflectiveProcessor().registerReflectionHints(hints.reflection(),
+                getClass().getMethod("dummyKeyedConsumer", OrderMessage.class));
+
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(OrderMessage.class, "orderId").invoke())
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onConstructor(OrderConfirmation.class.getConstructor(
+                String.class, String.class)).invoke()).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(OrderConfirmation.class, "status").invoke())
+                .accepts(hints);
+    }
+}
@@ -1,10 +1,18 @@
 package com.example.idempotency.aspect;
 
+import com.example.idempotency.annotation.CacheOutcome;
 import com.example.idempotency.annotation.Idempotent;
+import com.example.idempotency.audit.IdempotencyDecision;
+import com.example.idempotency.audit.IdempotencyDecisionRecorder;
+import com.example.idempotency.config.IdempotencyProperties;
 import com.example.idempotency.exception.IdempotencyBodyMismatchException;
 import com.example.idempotency.exception.IdempotencyConflictException;
 import com.example.idempotency.exception.IdempotencyKeyMissingException;
+import com.example.idempotency.exception.IdempotencyShuttingDownException;
 import com.example.idempotency.model.CachedResponse;
+import com.example.idempotency.monitor.HandlerLatencyTracker;
+import com.example.idempotency.monitor.HeldLockRegistry;
+import com.example.idempotency.monitor.HotKeySketch;
 import com.example.idempotency.store.IdempotencyStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -15,16 +23,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -39,14 +50,23 @@ class IdempotencyAspectTest {
     @Mock private ProceedingJoinPoint joinPoint;
     @Mock private Idempotent idempotent;
     @Mock private MethodSignature methodSignature;
+    @Mock private IdempotencyDecisionRecorder decisions;
 
     private IdempotencyAspect aspect;
     private ObjectMapper objectMapper;
+    private IdempotencyProperties properties;
+    private HotKeySketch hotKeys;
+    private HeldLockRegistry heldLocks;
+    private HandlerLatencyTracker latencies;
 
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
-        aspect = new IdempotencyAspect(store, objectMapper);
+        properties = new IdempotencyProperties();
+        hotKeys = new HotKeySketch(1024, 10);
+        heldLocks = new HeldLockRegistry();
+        latencies = new HandlerLatencyTracker();
+        aspect = new IdempotencyAspect(store, objectMapper, properties, hotKeys, heldLocks, latencies, decisions);
     }
 
     @AfterEach
@@ -66,6 +86,64 @@ class IdempotencyAspectTest {
     @SuppressWarnings("unused")
     public void dummyEndpoint(@RequestBody Map<String, Object> body) {}
 
+    @SuppressWarnings("unused")
+    public ResponseEntity<String> dummyResponseEndpoint() { return null; }
+
+    // Dummy consumer used for key expressions evaluated outside an HTTP request
+    @SuppressWarnings("unused")
+    public OrderMessage dummyConsumer(OrderMessage message) { return message; }
+
+    @SuppressWarnings("unused")
+    public Object dummyUntypedConsumer(OrderMessage message) { return message; }
+
+    // Source of real @CacheOutcome values for the mocked @Idempotent
+    @SuppressWarnings("unused")
+    @Idempotent(cacheOutcomes = {
+            @CacheOutcome(status = {422, 503}, ttl = 5, timeUnit = TimeUnit.MINUTES),
+            @CacheOutcome(exception = {IllegalArgumentException.class, ResponseStatusException.class})
+    })
+    public void dummyOutcomeEndpoint() {}
+
+    private static CacheOutcome[] cacheOutcomes() throws NoSuchMethodException {
+        return IdempotencyAspectTest.class.getMethod("dummyOutcomeEndpoint")
+                .getAnnotation(Idempotent.class).cacheOutcomes();
+    }
+
+    public static class OrderMessage {
+        private String tenantId;
+        private String orderId;
+
+        public OrderMessage() {}
+
+        public OrderMessage(String tenantId, String orderId) {
+            this.tenantId = tenantId;
+            this.orderId = orderId;
+        }
+
+        public String getTenantId() { return tenantId; }
+        public String getOrderId() { return orderId; }
+    }
+
+    private void setUpJoinPointReturningResponseEntity() throws NoSuchMethodException {
+        Method dummyMethod = this.getClass().getMethod("dummyResponseEndpoint");
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(dummyMethod);
+    }
+
+    private void setUpConsumerJoinPoint(OrderMessage message) throws NoSuchMethodException {
+        Method dummyMethod = this.getClass().getMethod("dummyConsumer", OrderMessage.class);
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(dummyMethod);
+        when(joinPoint.getArgs()).thenReturn(new Object[]{message});
+    }
+
+    private void setUpUntypedConsumerJoinPoint(OrderMessage message) throws NoSuchMethodException {
+        Method dummyMethod = this.getClass().getMethod("dummyUntypedConsumer", OrderMessage.class);
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(dummyMethod);
+        when(joinPoint.getArgs()).thenReturn(new Object[]{message});
+    }
+
     private void setUpJoinPointWithBody(Object bodyArg) throws NoSuchMethodException {
         Method dummyMethod = this.getClass().getMethod("dummyEndpoint", Map.class);
         when(joinPoint.getSignature()).thenReturn(methodSignature);
@@ -104,6 +182,8 @@ class IdempotencyAspectTest {
         when(idempotent.keyPrefix()).thenReturn("orders");
         when(idempotent.includeBody()).thenReturn(false);
 
+        setUpJoinPointReturningResponseEntity();
+
         CachedResponse cached = new CachedResponse(201, "{\"id\":1}", null);
         when(store.get("idempotency:orders:key-123")).thenReturn(Optional.of(cached));
 
@@ -113,6 +193,7 @@ class IdempotencyAspectTest {
         ResponseEntity<?> responseEntity = (ResponseEntity<?>) result;
         assertThat(responseEntity.getStatusCode().value()).isEqualTo(201);
         verify(joinPoint, never()).proceed();
+        verify(decisions).record(IdempotencyDecision.HIT, "orders", "key-123", 0, null);
     }
 
     @Test
@@ -135,6 +216,9 @@ class IdempotencyAspectTest {
         verify(store).tryLock("idempotency:orders:key-456", 1L, TimeUnit.HOURS);
         verify(store).put(eq("idempotency:orders:key-456"), any(CachedResponse.class), eq(1L), eq(TimeUnit.HOURS));
         verify(store).unlock("idempotency:orders:key-456");
+        assertThat(heldLocks.size()).isZero();
+        verify(decisions).record(eq(IdempotencyDecision.MISS), eq("orders"), eq("key-456"), longThat(d -> d >= 0), isNull());
+        assertThat(hotKeys.prefixCounts()).containsEntry("orders", 1L);
     }
 
     @Test
@@ -242,4 +326,372 @@ class IdempotencyAspectTest {
 
         verify(joinPoint, never()).proceed();
     }
+
+    @Test
+    void shouldUseFixedLengthDigestWhenKeyCompactionEnabled() throws Throwable {
+        properties.setCompactKeys(true);
+        setUpRequest("Idempotency-Key", "k".repeat(200));
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+
+        setUpJoinPointReturningResponseEntity();
+
+        CachedResponse cached = new CachedResponse(201, "{\"id\":1}", null);
+        when(store.get(anyString())).thenReturn(Optional.of(cached));
+
+        aspect.handleIdempotency(joinPoint, idempotent);
+
+        verify(store).get(argThat(key -> key.startsWith("idempotency:orders:")
+                && key.length() == "idempotency:orders:".length() + 22));
+    }
+
+    @Test
+    void shouldDeriveKeyFromExpressionWithoutRequestContext() throws Throwable {
+        when(idempotent.key()).thenReturn("#message.tenantId + ':' + #message.orderId");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        OrderMessage message = new OrderMessage("tenant-1", "order-9");
+        setUpConsumerJoinPoint(message);
+
+        when(store.get("idempotency:orders:tenant-1:order-9")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:orders:tenant-1:order-9"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        when(joinPoint.proceed()).thenReturn(message);
+
+        Object result = aspect.handleIdempotency(joinPoint, idempotent);
+
+        assertThat(result).isSameAs(message);
+        verify(store).put(eq("idempotency:orders:tenant-1:order-9"),
+                argThat(cached -> cached.getStatusCode() == 200 && cached.getBody().contains("order-9")),
+                eq(1L), eq(TimeUnit.HOURS));
+        verify(store).unlock("idempotency:orders:tenant-1:order-9");
+    }
+
+    @Test
+    void shouldReplayPlainReturnValueForExpressionKey() throws Throwable {
+        when(idempotent.key()).thenReturn("#p0.orderId");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        setUpConsumerJoinPoint(new OrderMessage("tenant-1", "order-10"));
+
+        CachedResponse cached = new CachedResponse(200, "{\"tenantId\":\"tenant-1\",\"orderId\":\"order-10\"}", null);
+        when(store.get("idempotency:orders:order-10")).thenReturn(Optional.of(cached));
+
+        Object result = aspect.handleIdempotency(joinPoint, idempotent);
+
+        assertThat(result).isInstanceOf(OrderMessage.class);
+        assertThat(((OrderMessage) result).getOrderId()).isEqualTo("order-10");
+        verify(joinPoint, never()).proceed();
+    }
+
+    @Test
+    void shouldNotCachePlainReturnValueOfHeaderKeyedMethod() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-plain");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        when(store.get("idempotency:orders:key-plain")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:orders:key-plain"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        when(joinPoint.proceed()).thenReturn("done");
+
+        assertThat(aspect.handleIdempotency(joinPoint, idempotent)).isEqualTo("done");
+
+        verify(store, never()).put(anyString(), any(), anyLong(), any());
+        verify(store).unlock("idempotency:orders:key-plain");
+    }
+
+    @Test
+    void shouldNotCacheReturnValueThatCannotBeReadBack() throws Throwable {
+        when(idempotent.key()).thenReturn("#p0.orderId");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        OrderMessage message = new OrderMessage("tenant-1", "order-11");
+        setUpUntypedConsumerJoinPoint(message);
+        when(store.get("idempotency:orders:order-11")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:orders:order-11"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        when(joinPoint.proceed()).thenReturn(message);
+
+        aspect.handleIdempotency(joinPoint, idempotent);
+
+        verify(store, never()).put(anyString(), any(), anyLong(), any());
+    }
+
+    @Test
+    void shouldTreatUnreadableCachedValueAsMiss() throws Throwable {
+        when(idempotent.key()).thenReturn("#p0.orderId");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        OrderMessage message = new OrderMessage("tenant-1", "order-12");
+        setUpConsumerJoinPoint(message);
+        when(store.get("idempotency:orders:order-12"))
+                .thenReturn(Optional.of(new CachedResponse(200, "[\"not\", \"an order\"]", null)));
+        when(store.tryLock(eq("idempotency:orders:order-12"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        when(joinPoint.proceed()).thenReturn(message);
+
+        assertThat(aspect.handleIdempotency(joinPoint, idempotent)).isSameAs(message);
+
+        verify(store).evict("idempotency:orders:order-12");
+        verify(store).put(eq("idempotency:orders:order-12"), any(CachedResponse.class), eq(1L), eq(TimeUnit.HOURS));
+        verify(decisions, never()).record(eq(IdempotencyDecision.HIT), any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void shouldThrowWhenMandatoryExpressionYieldsNoValue() throws Throwable {
+        when(idempotent.key()).thenReturn("#message.orderId");
+        when(idempotent.mandatory()).thenReturn(true);
+        setUpConsumerJoinPoint(new OrderMessage("tenant-1", null));
+
+        assertThatThrownBy(() -> aspect.handleIdempotency(joinPoint, idempotent))
+                .isInstanceOf(IdempotencyKeyMissingException.class)
+                .hasMessageContaining("#message.orderId");
+    }
+
+    @Test
+    void shouldSuggestRetryAfterFromObservedLatencyOnConflict() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-slow");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("reports");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        setUpJoinPointReturningResponseEntity();
+        latencies.record(getClass().getMethod("dummyResponseEndpoint"), TimeUnit.SECONDS.toNanos(10));
+        // Another endpoint under the same prefix must not affect the estimate
+        latencies.record(getClass().getMethod("dummyEndpoint", Map.class), TimeUnit.MILLISECONDS.toNanos(5));
+
+        when(store.get("idempotency:reports:key-slow")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:reports:key-slow"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(false);
+        when(store.lockAcquiredAt("idempotency:reports:key-slow"))
+                .thenReturn(OptionalLong.of(System.currentTimeMillis() - 4_000));
+
+        assertThatThrownBy(() -> aspect.handleIdempotency(joinPoint, idempotent))
+                .isInstanceOfSatisfying(IdempotencyConflictException.class, e ->
+                        assertThat(e.getRetryAfterSeconds()).isBetween(5L, 6L));
+    }
+
+    @Test
+    void shouldNotRecordLatencyWhenHandlerThrows() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-rejected");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("reports");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        setUpJoinPointReturningResponseEntity();
+
+        when(store.get("idempotency:reports:key-rejected")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:reports:key-rejected"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        when(joinPoint.proceed()).thenThrow(new IllegalArgumentException("invalid report range"));
+
+        assertThatThrownBy(() -> aspect.handleIdempotency(joinPoint, idempotent))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(latencies.expectedMillis(getClass().getMethod("dummyResponseEndpoint"))).isEmpty();
+    }
+
+    @Test
+    void shouldRecordLatencyWhenHandlerReturns() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-done");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("reports");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        setUpJoinPointReturningResponseEntity();
+
+        when(store.get("idempotency:reports:key-done")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:reports:key-done"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        when(joinPoint.proceed()).thenReturn(ResponseEntity.ok("done"));
+
+        aspect.handleIdempotency(joinPoint, idempotent);
+
+        assertThat(latencies.expectedMillis(getClass().getMethod("dummyResponseEndpoint"))).isPresent();
+    }
+
+    @Test
+    void shouldFailOpenAndRecordDecisionWhenRedisUnavailable() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-down");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(store.get("idempotency:orders:key-down")).thenThrow(new RuntimeException("Connection refused"));
+        ResponseEntity<String> controllerResponse = ResponseEntity.ok("done");
+        when(joinPoint.proceed()).thenReturn(controllerResponse);
+
+        Object result = aspect.handleIdempotency(joinPoint, idempotent);
+
+        assertThat(result).isEqualTo(controllerResponse);
+        verify(decisions).record(eq(IdempotencyDecision.FAIL_OPEN), eq("orders"), eq("key-down"), anyLong(), isNull());
+    }
+
+    @Test
+    void shouldRejectNewWorkWhileShuttingDown() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-late");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(store.get("idempotency:orders:key-late")).thenReturn(Optional.empty());
+        heldLocks.setAccepting(false);
+
+        assertThatThrownBy(() -> aspect.handleIdempotency(joinPoint, idempotent))
+                .isInstanceOf(IdempotencyShuttingDownException.class);
+
+        verify(store, never()).tryLock(anyString(), anyLong(), any());
+        verify(joinPoint, never()).proceed();
+    }
+
+    @Test
+    void shouldNotUnlockWhenShutdownAlreadyReleasedLock() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-drained");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        when(store.get("idempotency:orders:key-drained")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:orders:key-drained"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        // Shutdown force-releases the lock while the handler is still running
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            heldLocks.release("idempotency:orders:key-drained");
+            return ResponseEntity.status(500).body("late");
+        });
+
+        aspect.handleIdempotency(joinPoint, idempotent);
+
+        verify(store, never()).unlock(anyString());
+    }
+
+    @Test
+    void shouldCacheListedNon2xxStatusWithItsOwnTtl() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-422");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        when(idempotent.cacheOutcomes()).thenReturn(cacheOutcomes());
+        when(store.get("idempotency:orders:key-422")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:orders:key-422"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        when(joinPoint.proceed()).thenReturn(ResponseEntity.unprocessableEntity().body("unknown sku"));
+
+        aspect.handleIdempotency(joinPoint, idempotent);
+
+        verify(store).put(eq("idempotency:orders:key-422"),
+                argThat(r -> r.getStatusCode() == 422 && r.getBody().equals("\"unknown sku\"")),
+                eq(5L), eq(TimeUnit.MINUTES));
+        verify(store).unlock("idempotency:orders:key-422");
+    }
+
+    @Test
+    void shouldNeverCacheServerErrorsEvenWhenListed() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-503");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        lenient().when(idempotent.cacheOutcomes()).thenReturn(cacheOutcomes());
+        when(store.get("idempotency:orders:key-503")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:orders:key-503"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        when(joinPoint.proceed()).thenReturn(ResponseEntity.status(503).body("try later"));
+
+        aspect.handleIdempotency(joinPoint, idempotent);
+
+        verify(store, never()).put(anyString(), any(), anyLong(), any());
+        verify(store).unlock("idempotency:orders:key-503");
+    }
+
+    @Test
+    void shouldCacheListedExceptionWithAnnotationTtl() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-invalid");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        when(idempotent.cacheOutcomes()).thenReturn(cacheOutcomes());
+        when(store.get("idempotency:orders:key-invalid")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:orders:key-invalid"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        when(joinPoint.proceed()).thenThrow(new IllegalArgumentException("unknown sku"));
+
+        assertThatThrownBy(() -> aspect.handleIdempotency(joinPoint, idempotent))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(store).put(eq("idempotency:orders:key-invalid"),
+                argThat(r -> IllegalArgumentException.class.getName().equals(r.getExceptionType())
+                        && "unknown sku".equals(r.getBody())),
+                eq(1L), eq(TimeUnit.HOURS));
+        verify(store).unlock("idempotency:orders:key-invalid");
+    }
+
+    @Test
+    void shouldReplayCachedExceptionWithoutProceeding() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-invalid");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.cacheOutcomes()).thenReturn(cacheOutcomes());
+        when(store.get("idempotency:orders:key-invalid")).thenReturn(
+                Optional.of(CachedResponse.ofException(new IllegalArgumentException("unknown sku"), null)));
+
+        assertThatThrownBy(() -> aspect.handleIdempotency(joinPoint, idempotent))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("unknown sku");
+
+        verify(joinPoint, never()).proceed();
+        verify(store, never()).tryLock(anyString(), anyLong(), any());
+        verify(decisions).record(IdempotencyDecision.HIT, "orders", "key-invalid", 0, null);
+    }
+
+    @Test
+    void shouldNotCacheListedExceptionThatCannotBeRebuilt() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-missing");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        when(idempotent.cacheOutcomes()).thenReturn(cacheOutcomes());
+        when(store.get("idempotency:orders:key-missing")).thenReturn(Optional.empty());
+        when(store.tryLock(eq("idempotency:orders:key-missing"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        when(joinPoint.proceed()).thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "no such order"));
+
+        assertThatThrownBy(() -> aspect.handleIdempotency(joinPoint, idempotent))
+                .isInstanceOf(ResponseStatusException.class);
+
+        verify(store, never()).put(anyString(), any(), anyLong(), any());
+        verify(store).unlock("idempotency:orders:key-missing");
+    }
+
+    @Test
+    void shouldEvictAndProcessUnderLockWhenCachedExceptionCannotBeRebuilt() throws Throwable {
+        setUpRequest("Idempotency-Key", "key-unlisted");
+        when(idempotent.headerName()).thenReturn("Idempotency-Key");
+        when(idempotent.keyPrefix()).thenReturn("orders");
+        when(idempotent.includeBody()).thenReturn(false);
+        when(idempotent.ttl()).thenReturn(1L);
+        when(idempotent.timeUnit()).thenReturn(TimeUnit.HOURS);
+        when(idempotent.cacheOutcomes()).thenReturn(cacheOutcomes());
+        // Written while IllegalStateException was still listed
+        when(store.get("idempotency:orders:key-unlisted")).thenReturn(
+                Optional.of(CachedResponse.ofException(new IllegalStateException("out of stock"), null)));
+        when(store.tryLock(eq("idempotency:orders:key-unlisted"), eq(1L), eq(TimeUnit.HOURS))).thenReturn(true);
+        ResponseEntity<String> response = ResponseEntity.status(201).body("{}");
+        when(joinPoint.proceed()).thenReturn(response);
+
+        assertThat(aspect.handleIdempotency(joinPoint, idempotent)).isEqualTo(response);
+
+        verify(store).evict("idempotency:orders:key-unlisted");
+        verify(store).tryLock("idempotency:orders:key-unlisted", 1L, TimeUnit.HOURS);
+        verify(store).unlock("idempotency:orders:key-unlisted");
+        verify(decisions, never()).record(eq(IdempotencyDecision.FAIL_OPEN), any(), any(), anyLong(), any());
+    }
 }
@@ -0,0 +1,77 @@
+package com.example.idempotency.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RingBufferDecisionLogTest {
+
+    /** Copies each event, since ring buffer slots are reused after write returns. */
+    private static class CollectingSink implements DecisionEventSink {
+        final List<String> keys = new CopyOnWriteArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch release = new CountDownLatch(0);
+
+        @Override
+        public void write(List<DecisionEvent> batch) throws IOException {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batch.forEach(event -> keys.add(event.getDecision() + ":" + event.getKey()));
+        }
+    }
+
+    @Test
+    void shouldDeliverEventsInOrder() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        RingBufferDecisionLog decisionLog = new RingBufferDecisionLog(sink, 64, 8);
+        decisionLog.start();
+
+        for (int i = 0; i < 20; i++) {
+            decisionLog.record(IdempotencyDecision.HIT, "orders", "key-" + i, 0, null);
+        }
+        decisionLog.close();
+
+        assertThat(sink.keys).hasSize(20);
+        assertThat(sink.keys.get(0)).isEqualTo("HIT:key-0");
+        assertThat(sink.keys.get(19)).isEqualTo("HIT:key-19");
+        assertThat(decisionLog.droppedCount()).isZero();
+    }
+
+    @Test
+    void shouldDropInsteadOfBlockingWhenFull() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        sink.release = new CountDownLatch(1);
+        RingBufferDecisionLog decisionLog = new RingBufferDecisionLog(sink, 4, 8);
+        decisionLog.start();
+
+        decisionLog.record(IdempotencyDecision.MISS, "orders", "first", 10, null);
+        assertThat(sink.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // The consumer is stuck writing "first", which still occupies a slot
+        for (int i = 0; i < 10; i++) {
+            decisionLog.record(IdempotencyDecision.CONFLICT, "orders", "key-" + i, 0, null);
+        }
+        assertThat(decisionLog.droppedCount()).isEqualTo(7);
+
+        sink.release.countDown();
+        decisionLog.close();
+        assertThat(sink.keys).containsExactly("MISS:first", "CONFLICT:key-0", "CONFLICT:key-1", "CONFLICT:key-2");
+    }
+
+    @Test
+    void shouldRejectNonPowerOfTwoCapacity() {
+        assertThatThrownBy(() -> new RingBufferDecisionLog(new CollectingSink(), 100, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
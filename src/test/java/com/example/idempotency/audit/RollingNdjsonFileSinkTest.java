@@ -0,0 +1,60 @@
+package com.example.idempotency.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollingNdjsonFileSinkTest {
+
+    @TempDir
+    Path directory;
+
+    private static DecisionEvent event(String key) {
+        DecisionEvent event = new DecisionEvent();
+        event.set(1_740_000_000_000L, IdempotencyDecision.BODY_MISMATCH, "pay", key, 42, "abc");
+        return event;
+    }
+
+    private List<Path> files() throws Exception {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.sorted().toList();
+        }
+    }
+
+    @Test
+    void shouldWriteOneJsonObjectPerLine() throws Exception {
+        RollingNdjsonFileSink sink = new RollingNdjsonFileSink(directory, 1024 * 1024, 3);
+
+        sink.write(List.of(event("key-\"quoted\"\n")));
+        sink.close();
+
+        List<String> lines = Files.readAllLines(files().get(0));
+        assertThat(lines).hasSize(1);
+        JsonNode node = new ObjectMapper().readTree(lines.get(0));
+        assertThat(node.get("decision").asText()).isEqualTo("BODY_MISMATCH");
+        assertThat(node.get("key").asText()).isEqualTo("key-\"quoted\"\n");
+        assertThat(node.get("durationNanos").asLong()).isEqualTo(42);
+    }
+
+    @Test
+    void shouldRollAndKeepNewestFiles() throws Exception {
+        RollingNdjsonFileSink sink = new RollingNdjsonFileSink(directory, 1, 2);
+
+        for (int i = 0; i < 5; i++) {
+            sink.write(List.of(event("key-" + i)));
+        }
+        sink.close();
+
+        List<Path> files = files();
+        assertThat(files).hasSize(2);
+        assertThat(Files.readString(files.get(1))).contains("key-4");
+    }
+}
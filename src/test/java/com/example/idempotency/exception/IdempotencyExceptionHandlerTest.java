@@ -0,0 +1,48 @@
+package com.example.idempotency.exception;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class IdempotencyExceptionHandlerTest {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new ConflictingController())
+                .setControllerAdvice(new IdempotencyExceptionHandler())
+                .build();
+    }
+
+    @RestController
+    static class ConflictingController {
+        @PostMapping("/conflict/{retryAfterSeconds}")
+        void conflict(@PathVariable("retryAfterSeconds") long retryAfterSeconds) {
+            throw new IdempotencyConflictException("key-1", retryAfterSeconds);
+        }
+    }
+
+    @Test
+    void shouldReturn409WithRetryAfterHeader() throws Exception {
+        mockMvc.perform(post("/conflict/7"))
+                .andExpect(status().isConflict())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "7"))
+                .andExpect(jsonPath("$.message").exists());
+    }
+
+    @Test
+    void shouldOmitRetryAfterWhenNoEstimate() throws Exception {
+        mockMvc.perform(post("/conflict/0"))
+                .andExpect(status().isConflict())
+                .andExpect(header().doesNotExist(HttpHeaders.RETRY_AFTER));
+    }
+}
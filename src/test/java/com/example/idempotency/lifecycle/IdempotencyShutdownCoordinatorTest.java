@@ -0,0 +1,114 @@
+package com.example.idempotency.lifecycle;
+
+import com.example.idempotency.monitor.HeldLockRegistry;
+import com.example.idempotency.store.IdempotencyStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyShutdownCoordinatorTest {
+
+    @Mock private IdempotencyStore store;
+    @Captor private ArgumentCaptor<Collection<String>> released;
+
+    private HeldLockRegistry heldLocks;
+
+    @BeforeEach
+    void setUp() {
+        heldLocks = new HeldLockRegistry();
+    }
+
+    @Test
+    void shouldStopAcceptingWorkOnStop() {
+        IdempotencyShutdownCoordinator coordinator =
+                new IdempotencyShutdownCoordinator(heldLocks, store, Duration.ofMillis(100));
+        coordinator.start();
+
+        coordinator.stop();
+
+        assertThat(heldLocks.isAccepting()).isFalse();
+        assertThat(coordinator.isRunning()).isFalse();
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    void shouldWaitForInFlightHandlersToReleaseTheirLocks() {
+        IdempotencyShutdownCoordinator coordinator =
+                new IdempotencyShutdownCoordinator(heldLocks, store, Duration.ofSeconds(5));
+        coordinator.start();
+        heldLocks.register("idempotency:orders:in-flight");
+        CompletableFuture.runAsync(() -> heldLocks.release("idempotency:orders:in-flight"),
+                CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS));
+
+        coordinator.stop();
+
+        assertThat(heldLocks.size()).isZero();
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    void shouldReleaseRemainingLocksInOneBatchAfterDeadline() {
+        IdempotencyShutdownCoordinator coordinator =
+                new IdempotencyShutdownCoordinator(heldLocks, store, Duration.ofMillis(100));
+        coordinator.start();
+        heldLocks.register("idempotency:orders:stuck-1");
+        heldLocks.register("idempotency:orders:stuck-2");
+
+        coordinator.stop();
+
+        verify(store).unlockAll(released.capture());
+        assertThat(released.getValue())
+                .containsExactlyInAnyOrder("idempotency:orders:stuck-1", "idempotency:orders:stuck-2");
+        verify(store, never()).unlock(anyString());
+        assertThat(heldLocks.size()).isZero();
+    }
+
+    @Test
+    void shouldWaitForFailOpenHandlers() {
+        IdempotencyShutdownCoordinator coordinator =
+                new IdempotencyShutdownCoordinator(heldLocks, store, Duration.ofSeconds(5));
+        coordinator.start();
+        heldLocks.enterUnlocked();
+        CompletableFuture<Void> handler = CompletableFuture.runAsync(heldLocks::exitUnlocked,
+                CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS));
+
+        coordinator.stop();
+
+        assertThat(handler).isDone();
+        assertThat(heldLocks.isDrained()).isTrue();
+    }
+
+    @Test
+    void shouldDrainOffTheCallingThreadWhenStoppedWithCallback() throws Exception {
+        IdempotencyShutdownCoordinator coordinator =
+                new IdempotencyShutdownCoordinator(heldLocks, store, Duration.ofSeconds(5));
+        coordinator.start();
+        heldLocks.register("idempotency:orders:in-flight");
+        CountDownLatch stopped = new CountDownLatch(1);
+
+        coordinator.stop(stopped::countDown);
+
+        // Returns at once so the web server's graceful shutdown can run in the same phase
+        assertThat(heldLocks.isAccepting()).isFalse();
+        assertThat(stopped.getCount()).isEqualTo(1);
+        heldLocks.release("idempotency:orders:in-flight");
+        assertThat(stopped.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(coordinator.isRunning()).isFalse();
+        verifyNoInteractions(store);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.idempotency.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HotKeySketchTest {
+
+    @Test
+    void shouldReportHottestKeysFirst() {
+        HotKeySketch sketch = new HotKeySketch(1024, 3);
+
+        for (int i = 0; i < 1000; i++) {
+            sketch.record("orders", "idempotency:orders:cold-" + i);
+        }
+        for (int i = 0; i < 50; i++) {
+            sketch.record("orders", "idempotency:orders:hot");
+            sketch.record("payments", "idempotency:payments:warm");
+        }
+        for (int i = 0; i < 50; i++) {
+            sketch.record("orders", "idempotency:orders:hot");
+        }
+
+        List<HotKeySketch.KeyCount> top = sketch.topKeys();
+        assertThat(top).hasSizeLessThanOrEqualTo(3);
+        assertThat(top.get(0).key()).isEqualTo("idempotency:orders:hot");
+        assertThat(top.get(0).count()).isGreaterThanOrEqualTo(100);
+        assertThat(top.get(1).key()).isEqualTo("idempotency:payments:warm");
+    }
+
+    @Test
+    void shouldCountPrefixesExactly() {
+        HotKeySketch sketch = new HotKeySketch(64, 5);
+
+        sketch.record("orders", "idempotency:orders:a");
+        sketch.record("orders", "idempotency:orders:b");
+        sketch.record("", "idempotency:c");
+
+        assertThat(sketch.prefixCounts()).containsEntry("orders", 2L).containsEntry("", 1L);
+    }
+
+    @Test
+    void shouldClearOnReset() {
+        HotKeySketch sketch = new HotKeySketch(64, 5);
+        sketch.record("orders", "idempotency:orders:a");
+
+        sketch.reset();
+
+        assertThat(sketch.topKeys()).isEmpty();
+        assertThat(sketch.prefixCounts()).isEmpty();
+        assertThat(sketch.knownPrefixes()).containsExactly("orders");
+    }
+
+    @Test
+    void shouldRejectNonPowerOfTwoWidth() {
+        assertThatThrownBy(() -> new HotKeySketch(1000, 5)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldReportCurrentCountsForKeysAdmittedEarlier() {
+        HotKeySketch sketch = new HotKeySketch(1024, 3);
+
+        // 100 hits: last offered to the table at 64, reported from the sketch
+        for (int i = 0; i < 100; i++) {
+            sketch.record("orders", "idempotency:orders:hot");
+        }
+
+        assertThat(sketch.topKeys()).singleElement().satisfies(top -> assertThat(top.count()).isEqualTo(100));
+    }
+}
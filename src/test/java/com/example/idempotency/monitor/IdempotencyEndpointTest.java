@@ -0,0 +1,104 @@
+package com.example.idempotency.monitor;
+
+import com.example.idempotency.audit.IdempotencyDecision;
+import com.example.idempotency.audit.RingBufferDecisionLog;
+import com.redis.testcontainers.RedisContainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+class IdempotencyEndpointTest {
+
+    @Container
+    static RedisContainer redis = new RedisContainer("redis:7-alpine");
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+    }
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private HotKeySketch hotKeys;
+    private HeldLockRegistry heldLocks;
+    private IdempotencyEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        hotKeys = new HotKeySketch(1024, 10);
+        heldLocks = new HeldLockRegistry();
+        endpoint = new IdempotencyEndpoint(hotKeys, heldLocks, new IdempotencyKeySampler(redisTemplate, 100), null, null);
+    }
+
+    @Test
+    void shouldReportHotKeysAndHeldLocksWithoutSampling() {
+        hotKeys.record("orders", "idempotency:orders:a");
+        hotKeys.record("orders", "idempotency:orders:a");
+        heldLocks.register("idempotency:orders:b");
+
+        IdempotencyEndpoint.IdempotencyReport report = endpoint.report(null);
+
+        assertThat(report.hotKeys()).extracting(HotKeySketch.KeyCount::key).containsExactly("idempotency:orders:a");
+        assertThat(report.prefixes()).containsEntry("orders", 2L);
+        assertThat(report.heldLockCount()).isEqualTo(1);
+        assertThat(report.heldLocks()).extracting(IdempotencyEndpoint.HeldLock::key)
+                .containsExactly("idempotency:orders:b");
+        assertThat(report.redis()).isNull();
+        assertThat(report.shards()).isNull();
+        assertThat(report.decisionLogDropped()).isNull();
+    }
+
+    @Test
+    void shouldReportDecisionsDroppedByFullDecisionLog() {
+        // Never started, so nothing drains the single slot
+        RingBufferDecisionLog decisionLog = new RingBufferDecisionLog(batch -> {}, 1, 1);
+        decisionLog.record(IdempotencyDecision.MISS, "orders", "a", 0, null);
+        decisionLog.record(IdempotencyDecision.MISS, "orders", "b", 0, null);
+        decisionLog.record(IdempotencyDecision.HIT, "orders", "a", 0, null);
+        endpoint = new IdempotencyEndpoint(hotKeys, heldLocks, null, null, decisionLog);
+
+        assertThat(endpoint.report(null).decisionLogDropped()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldSampleRedisUsingPrefixesSeenByTheAspect() {
+        hotKeys.record("orders", "idempotency:orders:tenant-1:a");
+        redisTemplate.opsForValue().set("idempotency:orders:tenant-1:a", "{}");
+        redisTemplate.opsForValue().set("idempotency:tenant-2:b", "{}");
+
+        IdempotencyKeySampler.RedisSample sample = endpoint.report(10).redis();
+
+        assertThat(sample.sampledKeys()).isEqualTo(2);
+        assertThat(sample.prefixes()).containsOnlyKeys("orders", "");
+    }
+
+    @Test
+    void shouldKeepKnownPrefixesAfterReset() {
+        hotKeys.record("orders", "idempotency:orders:a");
+        redisTemplate.opsForValue().set("idempotency:orders:a", "{}");
+
+        endpoint.resetHotKeys();
+        IdempotencyEndpoint.IdempotencyReport report = endpoint.report(10);
+
+        assertThat(report.hotKeys()).isEmpty();
+        assertThat(report.prefixes()).isEmpty();
+        assertThat(report.redis().prefixes()).containsOnlyKeys("orders");
+    }
+}
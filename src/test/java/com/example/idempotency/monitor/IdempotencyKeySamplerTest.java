@@ -0,0 +1,90 @@
+package com.example.idempotency.monitor;
+
+import com.redis.testcontainers.RedisContainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+class IdempotencyKeySamplerTest {
+
+    @Container
+    static RedisContainer redis = new RedisContainer("redis:7-alpine");
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+    }
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @Test
+    void shouldGroupSampledKeysByKnownPrefix() {
+        redisTemplate.opsForValue().set("idempotency:orders:tenant-1:order-1", "{}");
+        redisTemplate.opsForValue().set("idempotency:orders:tenant-1:order-2:lock", "1");
+        redisTemplate.opsForValue().set("idempotency:tenant-2:order-3", "{}");
+        redisTemplate.opsForValue().set("unrelated", "x");
+
+        IdempotencyKeySampler.RedisSample sample =
+                new IdempotencyKeySampler(redisTemplate, 100).sample(100, Set.of("orders", ""));
+
+        assertThat(sample.sampledKeys()).isEqualTo(3);
+        assertThat(sample.truncated()).isFalse();
+        assertThat(sample.prefixes()).containsOnlyKeys("orders", "");
+        assertThat(sample.prefixes().get("orders").keys()).isEqualTo(1);
+        assertThat(sample.prefixes().get("orders").locks()).isEqualTo(1);
+        assertThat(sample.prefixes().get("orders").bytes()).isPositive();
+        assertThat(sample.prefixes().get("").keys()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCapSampleAtConfiguredMaximum() {
+        for (int i = 0; i < 5; i++) {
+            redisTemplate.opsForValue().set("idempotency:orders:key-" + i, "{}");
+        }
+
+        IdempotencyKeySampler.RedisSample sample =
+                new IdempotencyKeySampler(redisTemplate, 2).sample(1000, Set.of("orders"));
+
+        assertThat(sample.sampledKeys()).isEqualTo(2);
+        assertThat(sample.truncated()).isTrue();
+    }
+
+    @Test
+    void shouldMatchLongestKnownPrefix() {
+        Set<String> known = Set.of("", "orders", "orders:eu");
+
+        assertThat(IdempotencyKeySampler.prefixOf("idempotency:orders:abc", known)).isEqualTo("orders");
+        assertThat(IdempotencyKeySampler.prefixOf("idempotency:orders:abc:lock", known)).isEqualTo("orders");
+        assertThat(IdempotencyKeySampler.prefixOf("idempotency:orders:eu:abc", known)).isEqualTo("orders:eu");
+        assertThat(IdempotencyKeySampler.prefixOf("idempotency:orders-v2:abc", known)).isEqualTo("");
+    }
+
+    @Test
+    void shouldNotTreatCompositeKeySegmentsAsPrefixes() {
+        assertThat(IdempotencyKeySampler.prefixOf("idempotency:tenant-1:order-9", Set.of("", "orders")))
+                .isEqualTo("");
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.idempotency.store;
+
+import com.example.idempotency.model.CachedResponse;
+import com.redis.testcontainers.RedisContainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+class RedisHashIdempotencyStoreTest {
+
+    @Container
+    static RedisContainer redis = new RedisContainer("redis:7-alpine");
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+    }
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private RedisHashIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new RedisHashIdempotencyStore(redisTemplate);
+    }
+
+    @Test
+    void shouldReturnEmptyWhenKeyNotFound() {
+        assertThat(store.get("hash-nonexistent-key")).isEmpty();
+    }
+
+    @Test
+    void shouldStoreAndRetrieveCachedResponse() {
+        assertThat(store.tryLock("hash-test-key", 1, TimeUnit.HOURS)).isTrue();
+        store.put("hash-test-key", new CachedResponse(201, "{\"id\":1}", "abc123"), 1, TimeUnit.HOURS);
+        store.unlock("hash-test-key");
+
+        Optional<CachedResponse> result = store.get("hash-test-key");
+        assertThat(result).isPresent();
+        assertThat(result.get().getStatusCode()).isEqualTo(201);
+        assertThat(result.get().getBody()).isEqualTo("{\"id\":1}");
+        assertThat(result.get().getBodyHash()).isEqualTo("abc123");
+    }
+
+    @Test
+    void shouldKeepLockAndResponseInSingleKey() {
+        store.tryLock("hash-single-key", 1, TimeUnit.HOURS);
+        store.put("hash-single-key", new CachedResponse(200, "{}", null), 1, TimeUnit.HOURS);
+
+        assertThat(redisTemplate.hasKey("hash-single-key:lock")).isFalse();
+        assertThat(redisTemplate.opsForHash().get("hash-single-key", RedisHashIdempotencyStore.STATE))
+                .isEqualTo(RedisHashIdempotencyStore.COMPLETED);
+        assertThat(redisTemplate.opsForHash().hasKey("hash-single-key", RedisHashIdempotencyStore.BODY_HASH)).isFalse();
+    }
+
+    @Test
+    void shouldStoreCachedExceptionType() {
+        store.tryLock("hash-exception-key", 1, TimeUnit.HOURS);
+        store.put("hash-exception-key", CachedResponse.ofException(new IllegalArgumentException("unknown sku"), null),
+                1, TimeUnit.HOURS);
+
+        Optional<CachedResponse> result = store.get("hash-exception-key");
+        assertThat(result).isPresent();
+        assertThat(result.get().getExceptionType()).isEqualTo(IllegalArgumentException.class.getName());
+        assertThat(result.get().getBody()).isEqualTo("unknown sku");
+    }
+
+    @Test
+    void shouldEvictCompletedRecordButNotProcessingOne() {
+        store.tryLock("hash-evict-key", 1, TimeUnit.HOURS);
+        store.evict("hash-evict-key");
+        assertThat(store.tryLock("hash-evict-key", 1, TimeUnit.HOURS)).isFalse();
+
+        store.put("hash-evict-key", new CachedResponse(200, "{}", null), 1, TimeUnit.HOURS);
+        store.evict("hash-evict-key");
+
+        assertThat(store.get("hash-evict-key")).isEmpty();
+        assertThat(store.tryLock("hash-evict-key", 1, TimeUnit.HOURS)).isTrue();
+    }
+
+    @Test
+    void shouldNotReturnResponseWhileProcessing() {
+        assertThat(store.tryLock("hash-processing-key", 1, TimeUnit.HOURS)).isTrue();
+
+        assertThat(store.get("hash-processing-key")).isEmpty();
+        assertThat(store.tryLock("hash-processing-key", 1, TimeUnit.HOURS)).isFalse();
+    }
+
+    @Test
+    void shouldReleaseLockWithoutResponse() {
+        store.tryLock("hash-release-key", 1, TimeUnit.HOURS);
+        store.unlock("hash-release-key");
+
+        assertThat(redisTemplate.hasKey("hash-release-key")).isFalse();
+        assertThat(store.tryLock("hash-release-key", 1, TimeUnit.HOURS)).isTrue();
+    }
+
+    @Test
+    void shouldRespectTtl() throws InterruptedException {
+        store.put("hash-expiring-key", new CachedResponse(200, "{}", null), 1, TimeUnit.SECONDS);
+
+        assertThat(store.get("hash-expiring-key")).isPresent();
+        Thread.sleep(1500);
+        assertThat(store.get("hash-expiring-key")).isEmpty();
+    }
+
+    @Test
+    void shouldExposeLockAcquisitionTimeWhileLocked() {
+        long before = System.currentTimeMillis();
+        store.tryLock("hash-lock-age-key", 1, TimeUnit.HOURS);
+
+        OptionalLong acquiredAt = store.lockAcquiredAt("hash-lock-age-key");
+        assertThat(acquiredAt).isPresent();
+        assertThat(acquiredAt.getAsLong()).isBetween(before, System.currentTimeMillis());
+
+        store.unlock("hash-lock-age-key");
+        assertThat(store.lockAcquiredAt("hash-lock-age-key")).isEmpty();
+    }
+}
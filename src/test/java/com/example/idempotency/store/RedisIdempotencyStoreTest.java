@@ -13,6 +13,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -68,4 +69,17 @@ class RedisIdempotencyStoreTest {
         Thread.sleep(1500);
         assertThat(store.get("expiring-key")).isEmpty();
     }
+
+    @Test
+    void shouldExposeLockAcquisitionTimeWhileLocked() {
+        long before = System.currentTimeMillis();
+        store.tryLock("lock-age-key", 1, TimeUnit.HOURS);
+
+        OptionalLong acquiredAt = store.lockAcquiredAt("lock-age-key");
+        assertThat(acquiredAt).isPresent();
+        assertThat(acquiredAt.getAsLong()).isBetween(before, System.currentTimeMillis());
+
+        store.unlock("lock-age-key");
+        assertThat(store.lockAcquiredAt("lock-age-key")).isEmpty();
+    }
 }
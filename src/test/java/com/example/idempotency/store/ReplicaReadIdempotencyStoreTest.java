@@ -0,0 +1,120 @@
+package com.example.idempotency.store;
+
+import com.example.idempotency.model.CachedResponse;
+import com.redis.testcontainers.RedisContainer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.Network;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the stores against a local primary/replica pair.
+ */
+@Testcontainers
+class ReplicaReadIdempotencyStoreTest {
+
+    static Network network = Network.newNetwork();
+
+    @Container
+    static RedisContainer primary = new RedisContainer("redis:7-alpine")
+            .withNetwork(network)
+            .withNetworkAliases("primary");
+
+    @Container
+    static RedisContainer replica = new RedisContainer("redis:7-alpine")
+            .withNetwork(network)
+            .withCommand("redis-server", "--replicaof", "primary", "6379");
+
+    private static LettuceConnectionFactory primaryFactory;
+    private static LettuceConnectionFactory replicaFactory;
+    private static StringRedisTemplate primaryTemplate;
+    private static StringRedisTemplate replicaTemplate;
+
+    private RedisIdempotencyStore store;
+
+    @BeforeAll
+    static void connect() {
+        primaryFactory = connectionFactory(primary);
+        replicaFactory = connectionFactory(replica);
+        primaryTemplate = new StringRedisTemplate(primaryFactory);
+        replicaTemplate = new StringRedisTemplate(replicaFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        primaryFactory.destroy();
+        replicaFactory.destroy();
+        network.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        store = new RedisIdempotencyStore(primaryTemplate, replicaTemplate);
+    }
+
+    private static LettuceConnectionFactory connectionFactory(RedisContainer container) {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(container.getHost(), container.getMappedPort(6379)));
+        factory.afterPropertiesSet();
+        factory.start();
+        return factory;
+    }
+
+    @Test
+    void shouldServeReplicatedResponse() throws InterruptedException {
+        store.put("replica-key", new CachedResponse(201, "{\"id\":1}", null), 1, TimeUnit.HOURS);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (replicaTemplate.opsForValue().get("replica-key") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertThat(replicaTemplate.hasKey("replica-key")).isTrue();
+        assertThat(store.get("replica-key")).hasValueSatisfying(cached ->
+                assertThat(cached.getStatusCode()).isEqualTo(201));
+    }
+
+    @Test
+    void shouldKeepLocksOnPrimary() {
+        assertThat(store.tryLock("replica-lock-key", 1, TimeUnit.HOURS)).isTrue();
+
+        assertThat(primaryTemplate.hasKey("replica-lock-key:lock")).isTrue();
+        store.unlock("replica-lock-key");
+        assertThat(primaryTemplate.hasKey("replica-lock-key:lock")).isFalse();
+    }
+
+    @Test
+    void shouldReadFromReplicaAndFallBackToPrimaryOnLag() {
+        // Detach the replica so it stops receiving writes, simulating replication lag
+        replicaTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().replicaOfNoOne();
+            return null;
+        });
+        try {
+            store.put("lagging-key", new CachedResponse(200, "{\"lag\":true}", null), 1, TimeUnit.HOURS);
+            assertThat(replicaTemplate.hasKey("lagging-key")).isFalse();
+            assertThat(store.get("lagging-key")).isPresent();
+
+            // A record only the replica has can only have been read from the replica
+            replicaTemplate.opsForValue().set("replica-only-key", "{\"statusCode\":202,\"body\":\"{}\",\"bodyHash\":null}");
+            assertThat(store.get("replica-only-key")).hasValueSatisfying(cached ->
+                    assertThat(cached.getStatusCode()).isEqualTo(202));
+        } finally {
+            replicaTemplate.execute((RedisCallback<Void>) connection -> {
+                connection.serverCommands().replicaOf("primary", 6379);
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.idempotency.store;
+
+import com.example.idempotency.model.CachedResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ShardedIdempotencyStoreTest {
+
+    private static final int KEYS = 20_000;
+    private static final List<String> PREVIOUS_SHARDS = List.of("redis-0", "redis-1", "redis-2");
+
+    private static Map<String, IdempotencyStore> mockShards(int count) {
+        Map<String, IdempotencyStore> shards = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            shards.put("redis-" + i, mock(IdempotencyStore.class));
+        }
+        return shards;
+    }
+
+    @Test
+    void shouldRouteLockAndResponseForOneKeyToSameShard() {
+        Map<String, IdempotencyStore> shards = mockShards(3);
+        ShardedIdempotencyStore store = new ShardedIdempotencyStore(shards);
+        String key = "idempotency:orders:key-123";
+        IdempotencyStore owner = shards.get(store.shardFor(key));
+        when(owner.tryLock(key, 1, TimeUnit.HOURS)).thenReturn(true);
+
+        assertThat(store.tryLock(key, 1, TimeUnit.HOURS)).isTrue();
+        store.put(key, new CachedResponse(201, "{}", null), 1, TimeUnit.HOURS);
+        store.get(key);
+        store.unlock(key);
+
+        verify(owner).tryLock(key, 1, TimeUnit.HOURS);
+        verify(owner).put(eq(key), any(CachedResponse.class), eq(1L), eq(TimeUnit.HOURS));
+        verify(owner).get(key);
+        verify(owner).unlock(key);
+        shards.values().stream().filter(shard -> shard != owner).forEach(shard -> verifyNoInteractions(shard));
+    }
+
+    @Test
+    void shouldSpreadKeysEvenly() {
+        ShardedIdempotencyStore store = new ShardedIdempotencyStore(mockShards(4));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(store.shardFor("idempotency:orders:key-" + i), 1, Integer::sum);
+        }
+
+        assertThat(counts).hasSize(4);
+        counts.values().forEach(count -> assertThat(count / (double) KEYS).isCloseTo(0.25, within(0.07)));
+    }
+
+    @Test
+    void shouldOnlyMoveKeysToNewShardWhenShardIsAdded() {
+        ShardedIdempotencyStore before = new ShardedIdempotencyStore(mockShards(3));
+        ShardedIdempotencyStore after = new ShardedIdempotencyStore(mockShards(4));
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            String key = "idempotency:orders:key-" + i;
+            owners.put(key, before.shardFor(key));
+        }
+
+        int moved = 0;
+        for (Map.Entry<String, String> entry : owners.entrySet()) {
+            String now = after.shardFor(entry.getKey());
+            if (!now.equals(entry.getValue())) {
+                assertThat(now).isEqualTo("redis-3");
+                moved++;
+            }
+        }
+        assertThat(moved / (double) KEYS).isCloseTo(0.25, within(0.07));
+    }
+
+    @Test
+    void shouldReportPerShardLoad() {
+        ShardedIdempotencyStore store = new ShardedIdempotencyStore(mockShards(2));
+        String key = "idempotency:orders:key-1";
+
+        store.get(key);
+        store.get(key);
+
+        Map<String, ShardedIdempotencyStore.ShardLoad> load = store.shardLoad();
+        assertThat(load.get(store.shardFor(key)).operations()).isEqualTo(2);
+        assertThat(load.values().stream().mapToDouble(ShardedIdempotencyStore.ShardLoad::keyShare).sum())
+                .isCloseTo(1.0, within(1e-9));
+    }
+
+    @Test
+    void shouldFallBackToPreviousOwnerForMovedKeysWhileMigrating() {
+        Map<String, IdempotencyStore> shards = mockShards(4);
+        ShardedIdempotencyStore store = migratingStore(shards, Duration.ofHours(1));
+        String key = movedKey(store);
+        IdempotencyStore previous = shards.get(previousOwner(key));
+        CachedResponse cached = new CachedResponse(201, "{}", null);
+        when(previous.get(key)).thenReturn(Optional.of(cached));
+
+        assertThat(store.isMigrating()).isTrue();
+        assertThat(store.get(key)).contains(cached);
+        verify(shards.get("redis-3")).get(key);
+    }
+
+    @Test
+    void shouldHoldMovedKeyLockOnBothOwnersWhileMigrating() {
+        Map<String, IdempotencyStore> shards = mockShards(4);
+        ShardedIdempotencyStore store = migratingStore(shards, Duration.ofHours(1));
+        String key = movedKey(store);
+        IdempotencyStore owner = shards.get("redis-3");
+        IdempotencyStore previous = shards.get(previousOwner(key));
+        when(owner.tryLock(key, 1, TimeUnit.HOURS)).thenReturn(true);
+        when(previous.tryLock(key, 1, TimeUnit.HOURS)).thenReturn(true);
+
+        assertThat(store.tryLock(key, 1, TimeUnit.HOURS)).isTrue();
+        store.put(key, new CachedResponse(201, "{}", null), 1, TimeUnit.HOURS);
+        store.unlock(key);
+
+        verify(owner).put(eq(key), any(CachedResponse.class), eq(1L), eq(TimeUnit.HOURS));
+        verify(previous).put(eq(key), any(CachedResponse.class), eq(1L), eq(TimeUnit.HOURS));
+        verify(owner).unlock(key);
+        verify(previous).unlock(key);
+    }
+
+    @Test
+    void shouldReleaseNewOwnerLockWhenPreviousOwnerHoldsMovedKey() {
+        Map<String, IdempotencyStore> shards = mockShards(4);
+        ShardedIdempotencyStore store = migratingStore(shards, Duration.ofHours(1));
+        String key = movedKey(store);
+        IdempotencyStore owner = shards.get("redis-3");
+        when(owner.tryLock(key, 1, TimeUnit.HOURS)).thenReturn(true);
+
+        assertThat(store.tryLock(key, 1, TimeUnit.HOURS)).isFalse();
+        verify(owner).unlock(key);
+    }
+
+    @Test
+    void shouldRouteOnlyToCurrentOwnerOnceMigrationWindowEnds() {
+        Map<String, IdempotencyStore> shards = mockShards(4);
+        ShardedIdempotencyStore store = migratingStore(shards, Duration.ZERO);
+        String key = movedKey(store);
+        when(shards.get("redis-3").tryLock(key, 1, TimeUnit.HOURS)).thenReturn(true);
+
+        assertThat(store.isMigrating()).isFalse();
+        assertThat(store.tryLock(key, 1, TimeUnit.HOURS)).isTrue();
+        assertThat(store.get(key)).isEmpty();
+        verifyNoInteractions(shards.get(previousOwner(key)));
+    }
+
+    @Test
+    void shouldRejectPreviousShardMissingFromCurrentShards() {
+        assertThatThrownBy(() -> new ShardedIdempotencyStore(mockShards(2), 160, List.of("redis-9"), Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("redis-9");
+    }
+
+    private static ShardedIdempotencyStore migratingStore(Map<String, IdempotencyStore> shards, Duration window) {
+        return new ShardedIdempotencyStore(shards, ShardedIdempotencyStore.DEFAULT_VIRTUAL_NODES, PREVIOUS_SHARDS, window);
+    }
+
+    // A key the fourth shard took over from one of the first three
+    private static String movedKey(ShardedIdempotencyStore store) {
+        for (int i = 0; ; i++) {
+            String key = "idempotency:orders:key-" + i;
+            if (store.shardFor(key).equals("redis-3")) {
+                return key;
+            }
+        }
+    }
+
+    private static String previousOwner(String key) {
+        return new ShardedIdempotencyStore(mockShards(3)).shardFor(key);
+    }
+}